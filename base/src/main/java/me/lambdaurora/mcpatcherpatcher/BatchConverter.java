@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represents a batch conversion of several resource packs.
+ * <p>
+ * Packs are converted on a bounded pool of workers, the largest packs are scheduled first
+ * and a failing pack never stops the rest of the batch.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class BatchConverter
+{
+    private final MCPatcherPatcher patcher;
+    private final int workers;
+
+    public BatchConverter(@NotNull MCPatcherPatcher patcher)
+    {
+        this(patcher, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchConverter(@NotNull MCPatcherPatcher patcher, int workers)
+    {
+        if (workers < 1)
+            throw new IllegalArgumentException("A batch needs at least one worker.");
+        this.patcher = patcher;
+        this.workers = workers;
+    }
+
+    /**
+     * Converts the specified resource packs into the output directory.
+     * <p>
+     * Each output file has the name of its input file. This method blocks until every pack has been processed.
+     *
+     * @param packs The resource packs to convert.
+     * @param outputDirectory The output directory.
+     * @return The result of the batch.
+     */
+    public @NotNull Result convert(@NotNull Collection<File> packs, @NotNull File outputDirectory)
+    {
+        List<File> queue = new ArrayList<>(packs);
+        // Longest processing time first: big packs don't end up alone at the tail of the batch.
+        queue.sort(Comparator.comparingLong(File::length).reversed());
+
+        Result result = new Result(queue.size());
+        int workers = Math.min(this.workers, Math.max(1, queue.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new WorkerFactory());
+        // Each output file has its own compressors, the cores are shared between the workers.
+        int compressionThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / workers);
+
+        long start = System.nanoTime();
+        queue.forEach(pack -> executor.execute(() -> {
+            System.out.println("Converting " + pack.getName());
+            try {
+                ConversionReport report = this.patcher.convert(pack, new File(outputDirectory, pack.getName()), compressionThreads);
+                if (report == null) {
+                    result.skip(pack);
+                } else if (report.isComplete()) {
+                    result.success(pack);
+                    System.out.println(report);
+                } else {
+                    result.failure(pack);
+                    System.out.println(report);
+                }
+            } catch (Exception e) {
+                result.failure(pack);
+                System.out.println("Failed to convert " + pack.getName());
+                e.printStackTrace();
+            }
+        }));
+
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Wait for the batch to finish.
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        result.elapsed = System.nanoTime() - start;
+
+        return result;
+    }
+
+    /**
+     * Represents the result of a batch conversion.
+     *
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public static class Result
+    {
+        private final int total;
+        private final List<File> converted = new ArrayList<>();
+        private final List<File> skipped = new ArrayList<>();
+        private final List<File> failed = new ArrayList<>();
+        private long bytes = 0L;
+        private long elapsed = 0L;
+
+        private Result(int total)
+        {
+            this.total = total;
+        }
+
+        private synchronized void success(@NotNull File pack)
+        {
+            this.converted.add(pack);
+            this.bytes += pack.length();
+        }
+
+        private synchronized void skip(@NotNull File pack)
+        {
+            this.skipped.add(pack);
+        }
+
+        private synchronized void failure(@NotNull File pack)
+        {
+            this.failed.add(pack);
+        }
+
+        /**
+         * Returns the number of packs submitted to the batch.
+         *
+         * @return The number of packs.
+         */
+        public int getTotal()
+        {
+            return this.total;
+        }
+
+        public synchronized @NotNull List<File> getConverted()
+        {
+            return new ArrayList<>(this.converted);
+        }
+
+        /**
+         * Returns the packs which were skipped because their output is up-to-date.
+         *
+         * @return The skipped packs.
+         */
+        public synchronized @NotNull List<File> getSkipped()
+        {
+            return new ArrayList<>(this.skipped);
+        }
+
+        public synchronized @NotNull List<File> getFailed()
+        {
+            return new ArrayList<>(this.failed);
+        }
+
+        /**
+         * Returns the wall-clock duration of the batch in seconds.
+         *
+         * @return The duration in seconds.
+         */
+        public double getSeconds()
+        {
+            return this.elapsed / 1_000_000_000.0;
+        }
+
+        public synchronized double getPacksPerSecond()
+        {
+            return this.converted.size() / Math.max(this.getSeconds(), 1e-9);
+        }
+
+        public synchronized double getMegabytesPerSecond()
+        {
+            return this.bytes / (1024.0 * 1024.0) / Math.max(this.getSeconds(), 1e-9);
+        }
+
+        @Override
+        public synchronized String toString()
+        {
+            return String.format(Locale.ROOT, "Converted %d/%d packs (%d up-to-date, %d failed) in %.2fs: %.2f packs/s, %.2f MB/s.",
+                    this.converted.size(), this.total, this.skipped.size(), this.failed.size(), this.getSeconds(),
+                    this.getPacksPerSecond(), this.getMegabytesPerSecond());
+        }
+    }
+
+    private static class WorkerFactory implements ThreadFactory
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NotNull Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "MCPatcherPatcher Batch Worker #" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
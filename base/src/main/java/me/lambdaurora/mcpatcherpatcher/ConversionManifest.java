@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.aperlambda.lambdacommon.LambdaConstants;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Represents the manifest of the packs converted into an output directory.
+ * <p>
+ * The manifest records a digest of each input pack and the version of the converters used,
+ * which allows to skip the conversion of packs that did not change since the last run.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ConversionManifest
+{
+    public static final String FILE_NAME = ".mcpatcherpatcher.json";
+    private static final int SCHEMA_VERSION = 1;
+
+    private final File file;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private ConversionManifest(@NotNull File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Loads the manifest of the specified output directory.
+     * <p>
+     * A missing or unreadable manifest results in an empty manifest.
+     *
+     * @param directory The output directory.
+     * @return The manifest.
+     */
+    public static @NotNull ConversionManifest load(@NotNull File directory)
+    {
+        ConversionManifest manifest = new ConversionManifest(new File(directory, FILE_NAME));
+        if (!manifest.file.isFile())
+            return manifest;
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(manifest.file), StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            if (!json.has("schema") || json.get("schema").getAsInt() != SCHEMA_VERSION || !json.has("packs"))
+                return manifest;
+
+            for (Map.Entry<String, JsonElement> pack : json.getAsJsonObject("packs").entrySet()) {
+                JsonObject entry = pack.getValue().getAsJsonObject();
+                if (entry.has("digest") && entry.has("converters"))
+                    manifest.entries.put(pack.getKey(), new Entry(entry.get("digest").getAsString(), entry.get("converters").getAsString()));
+            }
+        } catch (IOException | JsonParseException | IllegalStateException | ClassCastException e) {
+            System.out.println("Could not read conversion manifest " + manifest.file + ", every pack will be converted.");
+            manifest.entries.clear();
+        }
+        return manifest;
+    }
+
+    /**
+     * Returns whether the specified output is up-to-date.
+     *
+     * @param output The output file.
+     * @param digest The digest of the input file.
+     * @param converters The version of the converters.
+     * @return True if the output exists and has been produced from the same input with the same converters, else false.
+     */
+    public synchronized boolean isUpToDate(@NotNull File output, @NotNull String digest, @NotNull String converters)
+    {
+        Entry entry = this.entries.get(output.getName());
+        return entry != null && output.exists() && entry.digest.equals(digest) && entry.converters.equals(converters);
+    }
+
+    /**
+     * Records the conversion of a pack.
+     *
+     * @param output The output file.
+     * @param digest The digest of the input file.
+     * @param converters The version of the converters.
+     */
+    public synchronized void record(@NotNull File output, @NotNull String digest, @NotNull String converters)
+    {
+        this.entries.put(output.getName(), new Entry(digest, converters));
+    }
+
+    /**
+     * Removes the record of the specified output.
+     *
+     * @param output The output file.
+     * @return True if the output was recorded, else false.
+     */
+    public synchronized boolean forget(@NotNull File output)
+    {
+        return this.entries.remove(output.getName()) != null;
+    }
+
+    /**
+     * Writes the manifest to the disk.
+     *
+     * @throws IOException If the manifest could not be written.
+     */
+    public synchronized void save() throws IOException
+    {
+        JsonObject json = new JsonObject();
+        json.addProperty("schema", SCHEMA_VERSION);
+        JsonObject packs = new JsonObject();
+        new TreeMap<>(this.entries).forEach((name, entry) -> {
+            JsonObject jsonEntry = new JsonObject();
+            jsonEntry.addProperty("digest", entry.digest);
+            jsonEntry.addProperty("converters", entry.converters);
+            packs.add(name, jsonEntry);
+        });
+        json.add("packs", packs);
+
+        File temp = new File(this.file.getParentFile(), this.file.getName() + ".tmp");
+        Files.write(temp.toPath(), LambdaConstants.GSON_PRETTY.toJson(json).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Computes the digest of a ZIP file.
+     * <p>
+     * Only the central directory is read: the digest covers the name, method, CRC and sizes of every entry.
+     *
+     * @param zipFile The ZIP file.
+     * @return The hexadecimal digest.
+     * @throws IOException If the ZIP file could not be read.
+     */
+    public static @NotNull String digest(@NotNull File zipFile) throws IOException
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            byte[] buffer = new byte[32];
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+                writeLong(buffer, 0, entry.getCrc());
+                writeLong(buffer, 8, entry.getSize());
+                writeLong(buffer, 16, entry.getCompressedSize());
+                writeLong(buffer, 24, entry.getMethod());
+                digest.update(buffer);
+            }
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    private static void writeLong(byte[] buffer, int offset, long value)
+    {
+        for (int i = 0; i < 8; i++) {
+            buffer[offset + i] = (byte) (value >>> (i * 8));
+        }
+    }
+
+    private static class Entry
+    {
+        private final String digest;
+        private final String converters;
+
+        private Entry(@NotNull String digest, @NotNull String converters)
+        {
+            this.digest = digest;
+            this.converters = converters;
+        }
+    }
+}
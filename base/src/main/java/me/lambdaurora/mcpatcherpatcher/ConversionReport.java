@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher;
+
+import com.google.gson.JsonObject;
+import me.lambdaurora.mcpatcherpatcher.converter.Converter;
+import me.lambdaurora.mcpatcherpatcher.converter.ConverterMetrics;
+import org.aperlambda.lambdacommon.Identifier;
+import org.aperlambda.lambdacommon.LambdaConstants;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Represents the report of the conversion of a resource pack.
+ * <p>
+ * Holds the metrics of every converter which ran, the merged failed conversions and the converters which crashed.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ConversionReport
+{
+    private final String name;
+    private final Map<String, ConverterMetrics> converters = new LinkedHashMap<>();
+    private final Map<Identifier, ErrorType> failures = new HashMap<>();
+    private final Map<String, Throwable> crashes = new LinkedHashMap<>();
+    private long nanos = 0L;
+
+    public ConversionReport(@NotNull String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Adds the result of a converter to this report.
+     *
+     * @param converter The converter.
+     * @param failed The failed conversions of the converter.
+     */
+    public synchronized void add(@NotNull Converter converter, @NotNull Map<Identifier, ErrorType> failed)
+    {
+        this.converters.put(converter.getName(), converter.getMetrics());
+        this.failures.putAll(failed);
+    }
+
+    /**
+     * Adds a converter which crashed before completing to this report.
+     *
+     * @param converter The converter.
+     * @param cause The cause of the crash.
+     */
+    public synchronized void crash(@NotNull Converter converter, @NotNull Throwable cause)
+    {
+        this.converters.put(converter.getName(), converter.getMetrics());
+        this.crashes.put(converter.getName(), cause);
+    }
+
+    void time(long nanos)
+    {
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the name of the converted resource pack.
+     *
+     * @return The name.
+     */
+    public @NotNull String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Returns the wall-clock duration of the conversion in seconds.
+     *
+     * @return The duration in seconds.
+     */
+    public double getSeconds()
+    {
+        return this.nanos / 1_000_000_000.0;
+    }
+
+    /**
+     * Returns the metrics of each converter, in registration order.
+     *
+     * @return The metrics by converter name.
+     */
+    public synchronized @NotNull Map<String, ConverterMetrics> getConverters()
+    {
+        return new LinkedHashMap<>(this.converters);
+    }
+
+    /**
+     * Returns the failed conversions, merged from every converter.
+     *
+     * @return A map of failed conversions and their error type.
+     */
+    public synchronized @NotNull Map<Identifier, ErrorType> getFailures()
+    {
+        return new HashMap<>(this.failures);
+    }
+
+    /**
+     * Returns the converters which crashed, in registration order.
+     *
+     * @return The causes of the crashes by converter name.
+     */
+    public synchronized @NotNull Map<String, Throwable> getCrashes()
+    {
+        return new LinkedHashMap<>(this.crashes);
+    }
+
+    /**
+     * Returns whether every converter completed or not.
+     * <p>
+     * The output of an incomplete conversion is partial and must not be considered as up-to-date.
+     *
+     * @return True if no converter crashed, else false.
+     */
+    public synchronized boolean isComplete()
+    {
+        return this.crashes.isEmpty();
+    }
+
+    public synchronized @NotNull JsonObject toJson()
+    {
+        JsonObject json = new JsonObject();
+        json.addProperty("pack", this.name);
+        json.addProperty("converters_version", MCPatcherPatcher.CONVERTERS_VERSION);
+        json.addProperty("time_ms", this.nanos / 1_000_000.0);
+
+        JsonObject converters = new JsonObject();
+        this.converters.forEach((name, metrics) -> converters.add(name, metrics.toJson()));
+        json.add("converters", converters);
+
+        JsonObject failures = new JsonObject();
+        Map<String, ErrorType> sorted = new TreeMap<>();
+        this.failures.forEach((id, type) -> sorted.put(id.toString(), type));
+        sorted.forEach((id, type) -> failures.addProperty(id, type.name().toLowerCase(Locale.ROOT)));
+        json.add("failures", failures);
+
+        JsonObject crashes = new JsonObject();
+        this.crashes.forEach((name, cause) -> crashes.addProperty(name, String.valueOf(cause)));
+        json.add("crashes", crashes);
+        return json;
+    }
+
+    /**
+     * Writes this report as JSON.
+     *
+     * @param file The file to write.
+     * @throws IOException If the report could not be written.
+     */
+    public void write(@NotNull File file) throws IOException
+    {
+        Files.write(file.toPath(), LambdaConstants.GSON_PRETTY.toJson(this.toJson()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        StringBuilder builder = new StringBuilder(String.format(Locale.ROOT, "Converted %s in %.2fs with %d failures.",
+                this.name, this.getSeconds(), this.failures.size()));
+        this.converters.forEach((name, metrics) -> builder.append(System.lineSeparator()).append("  ").append(name).append(": ").append(metrics));
+        this.crashes.forEach((name, cause) -> builder.append(System.lineSeparator()).append("  ").append(name).append(" crashed: ").append(cause));
+        return builder.toString();
+    }
+}
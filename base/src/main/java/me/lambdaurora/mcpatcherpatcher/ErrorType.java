@@ -28,5 +28,9 @@ package me.lambdaurora.mcpatcherpatcher;
 public enum ErrorType
 {
     INPUTSTREAM_IO,
-    PROPERTIES_READ
+    PROPERTIES_READ,
+    /**
+     * The size of an image does not fit what the converter expects, like a sky texture which is not in the 3:2 layout.
+     */
+    INVALID_IMAGE_SIZE
 }
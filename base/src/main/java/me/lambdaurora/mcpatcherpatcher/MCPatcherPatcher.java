@@ -21,76 +21,350 @@ import me.lambdaurora.mcpatcherpatcher.converter.CETConverter;
 import me.lambdaurora.mcpatcherpatcher.converter.Converter;
 import me.lambdaurora.mcpatcherpatcher.converter.RETConverter;
 import me.lambdaurora.mcpatcherpatcher.converter.SkyConverter;
+import me.lambdaurora.mcpatcherpatcher.fs.CloseableResourceAccessor;
+import me.lambdaurora.mcpatcherpatcher.fs.MappedZipAccessor;
+import me.lambdaurora.mcpatcherpatcher.fs.ParallelZipOutputAccessor;
 import me.lambdaurora.mcpatcherpatcher.fs.ResourceAccessor;
+import me.lambdaurora.mcpatcherpatcher.fs.SynchronizedResourceAccessor;
 import me.lambdaurora.mcpatcherpatcher.fs.ZipAccessor;
-import me.lambdaurora.mcpatcherpatcher.fs.ZipOutputAccessor;
 import me.lambdaurora.mcpatcherpatcher.image.ImageProvider;
+import me.lambdaurora.mcpatcherpatcher.image.PngEncoder;
+import org.aperlambda.lambdacommon.Identifier;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
-import java.util.zip.ZipOutputStream;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
 
 public class MCPatcherPatcher
 {
+    /**
+     * The version of the registered converters, must be bumped whenever the output of a converter changes
+     * so that the packs recorded in conversion manifests are converted again.
+     */
+    public static final String CONVERTERS_VERSION = "4";
+
     private final List<BiFunction<ResourceAccessor, ResourceAccessor, Converter>> converters = new ArrayList<>();
     private final ImageProvider imageProvider;
+    private final Executor executor;
+    private final Map<File, ConversionManifest> manifests = new ConcurrentHashMap<>();
+    private boolean incremental = true;
+    private boolean writeReports = false;
+    private boolean memoryMapped = false;
+    private boolean streaming = false;
 
     public MCPatcherPatcher(@NotNull ImageProvider imageProvider)
+    {
+        this(imageProvider, null);
+    }
+
+    /**
+     * Creates a new patcher.
+     * <p>
+     * If an executor is given, the registered converters run concurrently on it and share a synchronized view of the output.
+     *
+     * @param imageProvider The image provider.
+     * @param executor The executor used to run the converters concurrently, or null to run them one after another.
+     */
+    public MCPatcherPatcher(@NotNull ImageProvider imageProvider, @Nullable Executor executor)
     {
         this.imageProvider = imageProvider;
+        this.executor = executor;
         this.init();
     }
 
+    public @NotNull ImageProvider getImageProvider()
+    {
+        return this.imageProvider;
+    }
+
+    /**
+     * Sets whether file conversions skip the packs that did not change since their last conversion.
+     *
+     * @param incremental True to skip unchanged packs, else false.
+     * @see ConversionManifest
+     */
+    public void setIncremental(boolean incremental)
+    {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Sets whether file conversions write a JSON report next to each output file.
+     *
+     * @param writeReports True to write reports, else false.
+     * @see ConversionReport
+     */
+    public void setWriteReports(boolean writeReports)
+    {
+        this.writeReports = writeReports;
+    }
+
+    /**
+     * Sets whether file conversions read the input ZIP files through a memory mapping.
+     *
+     * @param memoryMapped True to map the input files, else false.
+     * @see MappedZipAccessor
+     */
+    public void setMemoryMapped(boolean memoryMapped)
+    {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Sets whether the sky converter writes its outputs as soon as they are ready instead of keeping them in memory.
+     *
+     * @param streaming True to stream the sky outputs, else false.
+     * @see SkyConverter#setStreaming(boolean)
+     */
+    public void setStreaming(boolean streaming)
+    {
+        this.streaming = streaming;
+    }
+
     private void init()
     {
         this.converters.add(CETConverter::new);
         this.converters.add(RETConverter::new);
-        this.converters.add(SkyConverter::new);
+        this.converters.add((input, output) -> {
+            SkyConverter converter = new SkyConverter(input, output);
+            converter.setStreaming(this.streaming);
+            return converter;
+        });
+    }
+
+    /**
+     * Creates an instance of every registered converter, in registration order.
+     *
+     * @param input The input resource accessor.
+     * @param output The output resource accessor.
+     * @return The converters.
+     */
+    public @NotNull List<Converter> createConverters(@NotNull ResourceAccessor input, @NotNull ResourceAccessor output)
+    {
+        return this.converters.stream().map(f -> f.apply(input, output)).collect(Collectors.toList());
     }
 
-    public void convert(@NotNull ResourceAccessor input, @NotNull ResourceAccessor output)
+    /**
+     * Converts the resources of the input accessor into the output accessor using every registered converter.
+     *
+     * @param input The input resource accessor.
+     * @param output The output resource accessor.
+     * @return The report of the conversion.
+     */
+    public @NotNull ConversionReport convert(@NotNull ResourceAccessor input, @NotNull ResourceAccessor output)
     {
+        return this.convert("resources", input, output);
+    }
+
+    /**
+     * Converts the resources of the input accessor into the output accessor using every registered converter.
+     * <p>
+     * A converter which crashes does not stop the other converters, the crash is added to the report
+     * which is then not {@link ConversionReport#isComplete() complete}.
+     *
+     * @param name The name of the converted resources, used in the report.
+     * @param input The input resource accessor.
+     * @param output The output resource accessor.
+     * @return The report of the conversion.
+     */
+    public @NotNull ConversionReport convert(@NotNull String name, @NotNull ResourceAccessor input, @NotNull ResourceAccessor output)
+    {
+        ConversionReport report = new ConversionReport(name);
+        long start = System.nanoTime();
+
         input.copy(output, "pack.mcmeta");
         input.copy(output, "pack.png");
-        this.converters.forEach(f -> {
-            Converter converter = f.apply(input, output);
-            System.out.println("Applying " + converter.getName() + " conversion.");
-            converter.convert(imageProvider);
+
+        if (this.executor == null) {
+            for (Converter converter : this.createConverters(input, output))
+                runConverter(report, converter, () -> this.apply(converter));
+        } else {
+            ResourceAccessor syncOutput = new SynchronizedResourceAccessor(output);
+            List<Converter> converters = this.createConverters(input, syncOutput);
+            List<CompletableFuture<Map<Identifier, ErrorType>>> futures = new ArrayList<>();
+            converters.forEach(converter -> futures.add(CompletableFuture.supplyAsync(() -> measure(converter, () -> this.apply(converter)),
+                    this.executor)));
+            // Joined in registration order so that the report does not depend on scheduling.
+            for (int i = 0; i < converters.size(); i++) {
+                try {
+                    report.add(converters.get(i), futures.get(i).join());
+                } catch (CompletionException e) {
+                    e.getCause().printStackTrace();
+                    report.crash(converters.get(i), e.getCause());
+                }
+            }
+        }
+
+        report.time(System.nanoTime() - start);
+        return report;
+    }
+
+    private @NotNull Map<Identifier, ErrorType> apply(@NotNull Converter converter)
+    {
+        System.out.println("Applying " + converter.getName() + " conversion.");
+        try {
+            return converter.convert(this.imageProvider);
+        } finally {
             if (converter instanceof Closeable)
                 ((Closeable) converter).close();
-        });
+        }
+    }
+
+    /**
+     * Runs a conversion and records its duration and failures in the metrics of the converter.
+     * <p>
+     * The metrics are reset first, converters kept between conversions report their latest conversion only.
+     *
+     * @param converter The converter.
+     * @param conversion The conversion, which calls the converter.
+     * @return The failed conversions.
+     */
+    static @NotNull Map<Identifier, ErrorType> measure(@NotNull Converter converter, @NotNull Supplier<Map<Identifier, ErrorType>> conversion)
+    {
+        converter.getMetrics().reset();
+        long start = System.nanoTime();
+        Map<Identifier, ErrorType> failed = conversion.get();
+        converter.getMetrics().time(System.nanoTime() - start);
+        converter.getMetrics().fail(failed);
+        return failed;
+    }
+
+    /**
+     * Runs a conversion and adds its result to the report.
+     * <p>
+     * A converter which crashes is added to the report as crashed instead of stopping the caller.
+     *
+     * @param report The report of the conversion.
+     * @param converter The converter.
+     * @param conversion The conversion, which calls the converter.
+     */
+    static void runConverter(@NotNull ConversionReport report, @NotNull Converter converter,
+                             @NotNull Supplier<Map<Identifier, ErrorType>> conversion)
+    {
+        try {
+            report.add(converter, measure(converter, conversion));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            report.crash(converter, e);
+        }
     }
 
-    public void convert(@NotNull File inputFile, @NotNull File outputFile) throws IOException
+    /**
+     * Converts the specified ZIP resource pack into a new ZIP resource pack.
+     * <p>
+     * If incremental conversion is enabled, the pack is skipped when the conversion manifest of the output directory
+     * shows that the output was produced from the same input with the same converters and PNG encoder settings.
+     * A pack is only recorded in the manifest once every converter completed.
+     * <p>
+     * The output file is compressed on one thread per available processor.
+     *
+     * @param inputFile The input file.
+     * @param outputFile The output file.
+     * @return The report of the conversion, or null if the pack was skipped because it is up-to-date.
+     * @throws IOException If the input could not be read or the output could not be written.
+     */
+    public @Nullable ConversionReport convert(@NotNull File inputFile, @NotNull File outputFile) throws IOException
+    {
+        return this.convert(inputFile, outputFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Converts the specified ZIP resource pack into a new ZIP resource pack.
+     * <p>
+     * If incremental conversion is enabled, the pack is skipped when the conversion manifest of the output directory
+     * shows that the output was produced from the same input with the same converters and PNG encoder settings.
+     * A pack is only recorded in the manifest once every converter completed.
+     * <p>
+     * The compression threads belong to this conversion, callers converting several packs at once should share the available processors between them.
+     *
+     * @param inputFile The input file.
+     * @param outputFile The output file.
+     * @param compressionThreads The number of threads compressing the output file.
+     * @return The report of the conversion, or null if the pack was skipped because it is up-to-date.
+     * @throws IOException If the input could not be read or the output could not be written.
+     * @see ParallelZipOutputAccessor
+     */
+    public @Nullable ConversionReport convert(@NotNull File inputFile, @NotNull File outputFile, int compressionThreads) throws IOException
     {
         if (!inputFile.exists())
             System.out.println("Input File does not exist!");
-        ResourceAccessor input;
+
+        ConversionManifest manifest = this.manifests.computeIfAbsent(outputFile.getAbsoluteFile().getParentFile(), ConversionManifest::load);
+        String version = this.getOutputVersion();
+        String digest = null;
+        if (this.incremental) {
+            digest = ConversionManifest.digest(inputFile);
+            if (manifest.isUpToDate(outputFile, digest, version)) {
+                System.out.println("Skipping " + inputFile.getName() + ", already up-to-date.");
+                return null;
+            }
+        }
+        // The output is overwritten, it must not stay recorded if the conversion does not complete.
+        if (manifest.forget(outputFile))
+            manifest.save();
+
+        CloseableResourceAccessor input = this.memoryMapped ? new MappedZipAccessor(inputFile) : new ZipAccessor(inputFile);
+
+        ParallelZipOutputAccessor out;
         try {
-            input = new ZipAccessor(inputFile);
+            out = new ParallelZipOutputAccessor(outputFile, compressionThreads, Deflater.DEFAULT_COMPRESSION);
         } catch (IOException e) {
-            e.printStackTrace();
-            return;
+            input.close();
+            throw e;
         }
 
-        ResourceAccessor out;
-        ZipOutputStream zipOutputStream;
+        ConversionReport report;
         try {
-            zipOutputStream = new ZipOutputStream(new FileOutputStream(outputFile));
-            out = new ZipOutputAccessor(zipOutputStream);
-        } catch (IOException e) {
-            e.printStackTrace();
-            return;
+            report = this.convert(inputFile.getName(), input, out);
+        } finally {
+            try {
+                out.close();
+            } finally {
+                input.close();
+            }
         }
 
-        this.convert(input, out);
+        if (digest != null && report.isComplete()) {
+            manifest.record(outputFile, digest, version);
+            manifest.save();
+        }
 
-        zipOutputStream.close();
+        if (this.writeReports) {
+            File reportFile = new File(outputFile.getAbsoluteFile().getParentFile(), outputFile.getName() + ".report.json");
+            try {
+                report.write(reportFile);
+            } catch (IOException e) {
+                System.out.println("Could not write conversion report " + reportFile + ": " + e.getMessage());
+            }
+        }
+        return report;
     }
 
+    /**
+     * Returns the version of the outputs recorded in the conversion manifests.
+     * <p>
+     * The outputs depend on the version of the converters and on the settings of the PNG encoder.
+     *
+     * @return The version of the outputs.
+     */
+    private @NotNull String getOutputVersion()
+    {
+        PngEncoder encoder = this.imageProvider.getEncoder();
+        if (encoder == null)
+            return CONVERTERS_VERSION;
+        return CONVERTERS_VERSION + "+png." + encoder.getLevel() + "." + encoder.getFilter().name().toLowerCase(Locale.ROOT);
+    }
 }
@@ -17,7 +17,12 @@
 
 package me.lambdaurora.mcpatcherpatcher;
 
+import me.lambdaurora.mcpatcherpatcher.fs.FileAccessor;
 import me.lambdaurora.mcpatcherpatcher.image.BufferedImageProvider;
+import me.lambdaurora.mcpatcherpatcher.image.DirectImageProvider;
+import me.lambdaurora.mcpatcherpatcher.image.ImageBufferPool;
+import me.lambdaurora.mcpatcherpatcher.image.ImageProvider;
+import me.lambdaurora.mcpatcherpatcher.image.PngEncoder;
 
 import javax.swing.*;
 import javax.swing.border.LineBorder;
@@ -29,10 +34,13 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class MCPatcherPatcherApplication extends JFrame
 {
-    private static final MCPatcherPatcher patcherInterface = new MCPatcherPatcher(new BufferedImageProvider());
+    private static final ImageBufferPool BUFFER_POOL = new ImageBufferPool();
+    // The converted packs are meant to be distributed, favor the size of the generated textures.
+    private static MCPatcherPatcher patcherInterface = createPatcher(PngEncoder.SMALL, false);
 
     private JLabel inputLabel;
     private JLabel outputLabel;
@@ -166,16 +174,10 @@ public class MCPatcherPatcherApplication extends JFrame
             Arrays.stream(this.inputDirectory.listFiles()).filter(file -> file.isFile() && file.getName().endsWith(".zip")).forEach(validResourcePacks::add);
 
             new Thread(() -> {
-                validResourcePacks.forEach(resourcePack -> {
-                    System.out.println("Converting " + resourcePack.getName());
-                    try {
-                        patcherInterface.convert(resourcePack, new File(this.outputDirectory.getAbsolutePath() + File.separator + resourcePack.getName()));
-                    } catch (IOException ioException) {
-                        ioException.printStackTrace();
-                    }
-                    System.out.println("Converted " + resourcePack.getName());
-                });
-            }).start();
+                BatchConverter.Result result = new BatchConverter(patcherInterface).convert(validResourcePacks, this.outputDirectory);
+                System.out.println(result);
+                System.out.println("Image buffers: " + BUFFER_POOL);
+            }, "MCPatcherPatcher Batch").start();
         });
     }
 
@@ -209,12 +211,28 @@ public class MCPatcherPatcherApplication extends JFrame
             if (options.length == 0) {
                 System.out.println("No");
             } else {
+                boolean fast = Arrays.stream(options).anyMatch(option -> option.trim().equalsIgnoreCase("fast"));
+                boolean offHeap = Arrays.stream(options).anyMatch(option -> option.trim().equalsIgnoreCase("off-heap"));
+                if (fast || offHeap)
+                    patcherInterface = createPatcher(fast ? PngEncoder.FAST : PngEncoder.SMALL, offHeap);
+
                 File inputFile = null;
                 File outputFile = null;
+                boolean watch = false;
 
                 for (String option : options) {
                     option = option.trim();
-                    if (option.toLowerCase().startsWith("input") && !option.equalsIgnoreCase("input") && !option.equalsIgnoreCase("input ")) {
+                    if (option.equalsIgnoreCase("force")) {
+                        patcherInterface.setIncremental(false);
+                    } else if (option.equalsIgnoreCase("report")) {
+                        patcherInterface.setWriteReports(true);
+                    } else if (option.equalsIgnoreCase("mmap")) {
+                        patcherInterface.setMemoryMapped(true);
+                    } else if (option.equalsIgnoreCase("stream")) {
+                        patcherInterface.setStreaming(true);
+                    } else if (option.equalsIgnoreCase("watch")) {
+                        watch = true;
+                    } else if (option.toLowerCase().startsWith("input") && !option.equalsIgnoreCase("input") && !option.equalsIgnoreCase("input ")) {
                         inputFile = new File(option.substring("input ".length()));
                     } else if (option.toLowerCase().startsWith("output") && !option.equalsIgnoreCase("output") && !option.equalsIgnoreCase("output ")) {
                         outputFile = new File(option.substring("output ".length()));
@@ -228,6 +246,10 @@ public class MCPatcherPatcherApplication extends JFrame
                     System.out.println("Missing Output File Path!");
                     return;
                 }
+                if (watch) {
+                    watch(inputFile, outputFile);
+                    return;
+                }
                 if (!inputFile.getAbsolutePath().endsWith(".zip")) {
                     System.out.println("Invalid Input File!");
                     return;
@@ -237,12 +259,47 @@ public class MCPatcherPatcherApplication extends JFrame
                     return;
                 }
 
-                patcherInterface.convert(inputFile, outputFile);
+                ConversionReport report = patcherInterface.convert(inputFile, outputFile);
+                if (report != null)
+                    System.out.println(report);
+                System.out.println("Image buffers: " + BUFFER_POOL);
                 System.out.printf("Output File: %s%n", outputFile.getAbsolutePath());
             }
         }
     }
 
+    /**
+     * Converts an unpacked resource pack into a directory, then converts it again each time it is modified.
+     *
+     * @param inputDirectory The input directory.
+     * @param outputDirectory The output directory.
+     * @throws IOException If the outputs could not be written.
+     */
+    private static void watch(File inputDirectory, File outputDirectory) throws IOException
+    {
+        if (!inputDirectory.isDirectory()) {
+            System.out.println("Invalid Input Directory!");
+            return;
+        }
+
+        FileAccessor output = new FileAccessor(outputDirectory.toPath(), 2);
+        PackWatcher watcher = new PackWatcher(patcherInterface, new FileAccessor(inputDirectory), output);
+        try {
+            System.out.println(watcher.convertAll());
+            System.out.printf("Watching %s for changes.%n", inputDirectory.getAbsolutePath());
+            watcher.run();
+        } finally {
+            watcher.close();
+            output.close();
+        }
+    }
+
+    private static MCPatcherPatcher createPatcher(PngEncoder encoder, boolean offHeap)
+    {
+        ImageProvider imageProvider = offHeap ? new DirectImageProvider(encoder, BUFFER_POOL) : new BufferedImageProvider(encoder, BUFFER_POOL);
+        return new MCPatcherPatcher(imageProvider, ForkJoinPool.commonPool());
+    }
+
     private boolean createDirectoryIfNotExist(File file) {
         if (!file.exists())
             return file.mkdirs();
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher;
+
+import me.lambdaurora.mcpatcherpatcher.converter.Converter;
+import me.lambdaurora.mcpatcherpatcher.fs.FileAccessor;
+import me.lambdaurora.mcpatcherpatcher.fs.ResourceAccessor;
+import org.aperlambda.lambdacommon.Identifier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a watch of an unpacked resource pack, which is converted again while it is edited.
+ * <p>
+ * The converters are created once and kept between the conversions. After a change, only the resources affected by the modified files
+ * are converted again: one CET properties file, one sky layer or one RET variant set.
+ * The events of the input directory are gathered until the files stop changing for a short delay,
+ * so saving several files at once triggers a single conversion.
+ * <p>
+ * The outputs of deleted files are kept until the next full conversion.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class PackWatcher implements Closeable
+{
+    /**
+     * The default delay without any event after which the modified files are converted, in milliseconds.
+     */
+    public static final long DEFAULT_QUIET_PERIOD = 50L;
+    private static final String[] PACK_FILES = {"pack.mcmeta", "pack.png"};
+
+    private final MCPatcherPatcher patcher;
+    private final FileAccessor input;
+    private final ResourceAccessor output;
+    private final List<Converter> converters;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private long quietPeriod = DEFAULT_QUIET_PERIOD;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new pack watcher and starts watching the input directory.
+     *
+     * @param patcher The patcher providing the converters and the image provider.
+     * @param input The input resource accessor.
+     * @param output The output resource accessor, its directory must not be inside the input directory.
+     * @throws IOException If the input directory could not be watched.
+     */
+    public PackWatcher(@NotNull MCPatcherPatcher patcher, @NotNull FileAccessor input, @NotNull ResourceAccessor output) throws IOException
+    {
+        if (output instanceof FileAccessor && ((FileAccessor) output).getDirectory().startsWith(input.getDirectory()))
+            throw new IllegalArgumentException("The output directory cannot be inside the watched directory.");
+        this.patcher = patcher;
+        this.input = input;
+        this.output = output;
+        this.converters = patcher.createConverters(input, output);
+        this.watchService = input.getDirectory().getFileSystem().newWatchService();
+        this.register(input.getDirectory());
+    }
+
+    /**
+     * Sets the delay without any event after which the modified files are converted.
+     *
+     * @param quietPeriod The delay in milliseconds.
+     */
+    public void setQuietPeriod(long quietPeriod)
+    {
+        this.quietPeriod = quietPeriod;
+    }
+
+    /**
+     * Converts the whole resource pack.
+     *
+     * @return The report of the conversion.
+     */
+    public synchronized @NotNull ConversionReport convertAll()
+    {
+        ConversionReport report = new ConversionReport(this.getName());
+        if (this.closed)
+            return report;
+        long start = System.nanoTime();
+
+        for (String file : PACK_FILES)
+            this.input.copy(this.output, file);
+
+        for (Converter converter : this.converters) {
+            MCPatcherPatcher.runConverter(report, converter, () -> {
+                try {
+                    return converter.convert(this.patcher.getImageProvider());
+                } finally {
+                    // Writes the outputs kept in memory, the converters are still usable afterwards.
+                    if (converter instanceof Closeable)
+                        ((Closeable) converter).close();
+                }
+            });
+        }
+        this.flushOutput();
+
+        report.time(System.nanoTime() - start);
+        return report;
+    }
+
+    /**
+     * Converts the resources affected by the specified modified files.
+     *
+     * @param paths The paths of the added, modified or deleted files or directories, relative to the input directory.
+     * @return The report of the conversion.
+     */
+    public synchronized @NotNull ConversionReport update(@NotNull Collection<String> paths)
+    {
+        ConversionReport report = new ConversionReport(this.getName());
+        if (this.closed)
+            return report;
+        long start = System.nanoTime();
+
+        Set<Identifier> changed = new HashSet<>();
+        for (String path : paths) {
+            for (String resource : this.input.update(path)) {
+                Identifier identifier = toAsset(resource);
+                if (identifier != null)
+                    changed.add(identifier);
+            }
+        }
+
+        for (String file : PACK_FILES) {
+            if (paths.contains(file))
+                this.input.copy(this.output, file);
+        }
+
+        for (Converter converter : this.converters)
+            MCPatcherPatcher.runConverter(report, converter, () -> converter.convert(this.patcher.getImageProvider(), changed));
+        this.flushOutput();
+
+        report.time(System.nanoTime() - start);
+        return report;
+    }
+
+    /**
+     * Watches the input directory and converts the modified files until this watcher is closed or the thread is interrupted.
+     */
+    public void run()
+    {
+        try {
+            while (!this.closed) {
+                WatchKey key = this.watchService.take();
+                Set<String> paths = new LinkedHashSet<>();
+                boolean overflow = false;
+                while (key != null) {
+                    overflow |= this.poll(key, paths);
+                    key = this.watchService.poll(this.quietPeriod, TimeUnit.MILLISECONDS);
+                }
+
+                if (overflow) {
+                    // Some events were lost, nothing tells which files changed.
+                    this.input.refresh();
+                    this.register(this.input.getDirectory());
+                    System.out.println(this.convertAll());
+                } else if (!paths.isEmpty()) {
+                    ConversionReport report = this.update(paths);
+                    System.out.printf(Locale.ROOT, "Converted %d changed file(s) in %.1fms with %d failures.%n",
+                            paths.size(), report.getSeconds() * 1000.0, report.getFailures().size());
+                    report.getCrashes().forEach((name, cause) -> System.out.println(name + " crashed: " + cause));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed while waiting for changes.
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gathers the events of a watch key.
+     *
+     * @param key The watch key.
+     * @param paths The paths of the modified files.
+     * @return True if some events were lost, else false.
+     * @throws IOException If a created directory could not be watched.
+     */
+    private boolean poll(@NotNull WatchKey key, @NotNull Set<String> paths) throws IOException
+    {
+        Path directory = this.directories.get(key);
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+            } else if (directory != null) {
+                Path file = directory.resolve((Path) event.context());
+                // Directories are only watched once created, the files created before are found when indexing them.
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file))
+                    this.register(file);
+                paths.add(this.toPath(file));
+            }
+        }
+        if (!key.reset())
+            this.directories.remove(key);
+        return overflow;
+    }
+
+    /**
+     * Watches the specified directory and its sub-directories.
+     * <p>
+     * Like the index of the input, only the resource type directories of the pack are watched.
+     *
+     * @param start The directory.
+     * @throws IOException If the directory could not be watched.
+     */
+    private void register(@NotNull Path start) throws IOException
+    {
+        Path root = this.input.getDirectory();
+        Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException
+            {
+                if (root.equals(dir.getParent()) && !isResourceTypeDirectory(dir.getFileName().toString()))
+                    return FileVisitResult.SKIP_SUBTREE;
+
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                directories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e)
+            {
+                // Deleted while walking, or a symbolic link loop.
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void flushOutput()
+    {
+        if (this.output instanceof FileAccessor) {
+            try {
+                ((FileAccessor) this.output).flush();
+            } catch (IOException e) {
+                System.out.println("Could not write the outputs: " + e.getMessage());
+            }
+        }
+    }
+
+    private @NotNull String getName()
+    {
+        Path name = this.input.getDirectory().getFileName();
+        return name == null ? "resources" : name.toString();
+    }
+
+    private @NotNull String toPath(@NotNull Path file)
+    {
+        String path = this.input.getDirectory().relativize(file).toString();
+        return File.separatorChar == '/' ? path : path.replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Returns the identifier of the asset at the specified path.
+     *
+     * @param path The path of the resource, relative to the root of the resource pack.
+     * @return The identifier, or null if the resource is not an asset.
+     */
+    private static @Nullable Identifier toAsset(@NotNull String path)
+    {
+        String prefix = ResourceType.ASSETS.getName() + "/";
+        if (!path.startsWith(prefix))
+            return null;
+        int separator = path.indexOf('/', prefix.length());
+        if (separator < 0)
+            return null;
+        return new Identifier(path.substring(prefix.length(), separator), path.substring(separator + 1));
+    }
+
+    private static boolean isResourceTypeDirectory(@NotNull String name)
+    {
+        for (ResourceType type : ResourceType.values()) {
+            if (type.getName().equals(name))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stops watching the input directory and releases the resources kept by the converters.
+     */
+    @Override
+    public void close()
+    {
+        this.closed = true;
+        try {
+            this.watchService.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        synchronized (this) {
+            for (Converter converter : this.converters) {
+                if (converter instanceof Closeable)
+                    ((Closeable) converter).close();
+            }
+        }
+        this.flushOutput();
+    }
+}
@@ -62,67 +62,99 @@ public class CETConverter extends Converter
                 .map(namespace -> new Identifier(namespace, CET_PARENT))
                 .forEach(parent -> this.input.searchIn(ResourceType.ASSETS, parent)
                         .filter(id -> id.getName().endsWith(".properties"))
-                        .forEach(id -> {
-                            Matcher matcher = CET_PATTERN.matcher(id.getName());
-                            if (matcher.find()) {
-                                String type = matcher.group("type");
-                                String sub = matcher.group("sub");
-                                String name = matcher.group("name");
-
-                                if (type == null || name == null)
-                                    return;
-                                if (sub == null)
-                                    sub = "";
-
-                                Identifier vmtId = new Identifier(id.getNamespace(),
-                                        "varied/textures/" + type + "/" + sub + name + ".json");
-
-                                InputStream inputStream = this.input.getInputStream(ResourceType.ASSETS, id);
-                                if (inputStream == null) {
-                                    failed.put(id, ErrorType.INPUTSTREAM_IO);
-                                    return;
-                                }
-
-                                Properties properties = new Properties();
-                                try {
-                                    properties.load(inputStream);
-                                    inputStream.close();
-                                } catch (IOException e) {
-                                    failed.put(id, ErrorType.PROPERTIES_READ);
-                                    return;
-                                } finally {
-                                    try {
-                                        inputStream.close();
-                                    } catch (IOException e) {
-                                        e.printStackTrace();
-                                    }
-                                }
-
-                                List<RandomEntityRule> rules = new ArrayList<>();
-
-                                int count = properties.size();
-                                for (int i = 0; i < count; i++) {
-                                    int index = i + 1;
-
-                                    String valTextures = properties.getProperty("textures." + index);
-                                    if (valTextures == null)
-                                        valTextures = properties.getProperty("skins." + index);
-
-                                    if (valTextures != null) {
-                                        rules.add(new RandomEntityRule(index,
-                                                new Identifier(id.getNamespace(), id.getName().replace(".properties", "")),
-                                                valTextures,
-                                                properties));
-                                    }
-                                }
-
-                                this.convert(vmtId, rules);
-                            }
-                        }));
+                        .forEach(id -> this.convertFile(id, failed)));
 
         return failed;
     }
 
+    /**
+     * Converts again the modified CET properties files, every properties file is converted on its own.
+     *
+     * @param imageProvider An image provider.
+     * @param changed The assets which were added, modified or deleted since the last conversion.
+     * @return A map of failed conversions and their error type.
+     */
+    @Override
+    public @NotNull Map<Identifier, ErrorType> convert(@NotNull ImageProvider imageProvider, @NotNull Set<Identifier> changed)
+    {
+        Map<Identifier, ErrorType> failed = new HashMap<>();
+
+        changed.stream()
+                .filter(id -> id.getName().startsWith(CET_PARENT + "/") && id.getName().endsWith(".properties"))
+                .filter(id -> this.input.has(ResourceType.ASSETS, id))
+                .sorted(Comparator.comparing(Identifier::toString))
+                .forEach(id -> this.convertFile(id, failed));
+
+        return failed;
+    }
+
+    /**
+     * Converts one CET properties file.
+     *
+     * @param id The identifier of the properties file.
+     * @param failed The Identifier-ErrorType Map
+     */
+    private void convertFile(@NotNull Identifier id, @NotNull Map<Identifier, ErrorType> failed)
+    {
+        Matcher matcher = CET_PATTERN.matcher(id.getName());
+        if (matcher.find()) {
+            this.metrics.matched();
+
+            String type = matcher.group("type");
+            String sub = matcher.group("sub");
+            String name = matcher.group("name");
+
+            if (type == null || name == null)
+                return;
+            if (sub == null)
+                sub = "";
+
+            Identifier vmtId = new Identifier(id.getNamespace(),
+                    "varied/textures/" + type + "/" + sub + name + ".json");
+
+            InputStream inputStream = this.input.getInputStream(ResourceType.ASSETS, id);
+            if (inputStream == null) {
+                failed.put(id, ErrorType.INPUTSTREAM_IO);
+                return;
+            }
+
+            Properties properties = new Properties();
+            try {
+                properties.load(inputStream);
+                inputStream.close();
+            } catch (IOException e) {
+                failed.put(id, ErrorType.PROPERTIES_READ);
+                return;
+            } finally {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            List<RandomEntityRule> rules = new ArrayList<>();
+
+            int count = properties.size();
+            for (int i = 0; i < count; i++) {
+                int index = i + 1;
+
+                String valTextures = properties.getProperty("textures." + index);
+                if (valTextures == null)
+                    valTextures = properties.getProperty("skins." + index);
+
+                if (valTextures != null) {
+                    rules.add(new RandomEntityRule(index,
+                            new Identifier(id.getNamespace(), id.getName().replace(".properties", "")),
+                            valTextures,
+                            properties));
+                }
+            }
+
+            this.convert(vmtId, rules);
+        }
+    }
+
     /**
      * Converts one MCPatcher file to VMT format. The MCPatcher file is parsed as a set of rules.
      *
@@ -18,13 +18,16 @@
 package me.lambdaurora.mcpatcherpatcher.converter;
 
 import me.lambdaurora.mcpatcherpatcher.ErrorType;
+import me.lambdaurora.mcpatcherpatcher.fs.MeteredResourceAccessor;
 import me.lambdaurora.mcpatcherpatcher.fs.ResourceAccessor;
 import me.lambdaurora.mcpatcherpatcher.image.ImageProvider;
 import org.aperlambda.lambdacommon.Identifier;
 import org.aperlambda.lambdacommon.utils.Nameable;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Represents a converter.
@@ -37,11 +40,15 @@ public abstract class Converter implements Nameable
 {
     protected final ResourceAccessor input;
     protected final ResourceAccessor output;
+    protected final ConverterMetrics metrics;
 
     public Converter(@NotNull ResourceAccessor input, @NotNull ResourceAccessor output)
     {
-        this.input = input;
-        this.output = output;
+        MeteredResourceAccessor meteredInput = new MeteredResourceAccessor(input);
+        MeteredResourceAccessor meteredOutput = new MeteredResourceAccessor(output);
+        this.input = meteredInput;
+        this.output = meteredOutput;
+        this.metrics = new ConverterMetrics(meteredInput, meteredOutput);
     }
 
     /**
@@ -51,4 +58,31 @@ public abstract class Converter implements Nameable
      * @return A map of failed conversions and their error type.
      */
     public abstract @NotNull Map<Identifier, ErrorType> convert(@NotNull ImageProvider imageProvider);
+
+    /**
+     * Converts again only the resources affected by the specified input resources, after they were modified.
+     * <p>
+     * Used to keep an unpacked resource pack converted while it is edited. The outputs of deleted inputs are kept.
+     * The default implementation converts the whole resource pack again as soon as anything changed.
+     *
+     * @param imageProvider An image provider.
+     * @param changed The assets which were added, modified or deleted since the last conversion.
+     * @return A map of failed conversions and their error type.
+     */
+    public @NotNull Map<Identifier, ErrorType> convert(@NotNull ImageProvider imageProvider, @NotNull Set<Identifier> changed)
+    {
+        if (changed.isEmpty())
+            return new HashMap<>();
+        return this.convert(imageProvider);
+    }
+
+    /**
+     * Returns the metrics of this converter.
+     *
+     * @return The metrics.
+     */
+    public @NotNull ConverterMetrics getMetrics()
+    {
+        return this.metrics;
+    }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.converter;
+
+import com.google.gson.JsonObject;
+import me.lambdaurora.mcpatcherpatcher.ErrorType;
+import me.lambdaurora.mcpatcherpatcher.fs.MeteredResourceAccessor;
+import org.aperlambda.lambdacommon.Identifier;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents the metrics of a converter run.
+ * <p>
+ * Input and output traffic is measured by the metered accessors of the converter, the converter itself reports
+ * matched entries and image operations.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ConverterMetrics
+{
+    private final MeteredResourceAccessor input;
+    private final MeteredResourceAccessor output;
+    private final LongAdder entriesMatched = new LongAdder();
+    private final LongAdder imagesDecoded = new LongAdder();
+    private final LongAdder imagesEncoded = new LongAdder();
+    private final Map<ErrorType, Integer> failures = new EnumMap<>(ErrorType.class);
+    private volatile long nanos = 0L;
+
+    ConverterMetrics(@NotNull MeteredResourceAccessor input, @NotNull MeteredResourceAccessor output)
+    {
+        this.input = input;
+        this.output = output;
+    }
+
+    /**
+     * Marks an input entry as matched by the converter.
+     */
+    public void matched()
+    {
+        this.entriesMatched.increment();
+    }
+
+    public void imageDecoded()
+    {
+        this.imagesDecoded.increment();
+    }
+
+    public void imageEncoded()
+    {
+        this.imagesEncoded.increment();
+    }
+
+    /**
+     * Records the wall-clock duration of the conversion.
+     *
+     * @param nanos The duration in nanoseconds.
+     */
+    public void time(long nanos)
+    {
+        this.nanos = nanos;
+    }
+
+    /**
+     * Records the failed conversions.
+     *
+     * @param failed The map of failed conversions and their error type.
+     */
+    public synchronized void fail(@NotNull Map<Identifier, ErrorType> failed)
+    {
+        failed.values().forEach(type -> this.failures.merge(type, 1, Integer::sum));
+    }
+
+    /**
+     * Resets the metrics, so that a converter which runs again only reports its latest run.
+     */
+    public synchronized void reset()
+    {
+        this.input.reset();
+        this.output.reset();
+        this.entriesMatched.reset();
+        this.imagesDecoded.reset();
+        this.imagesEncoded.reset();
+        this.failures.clear();
+        this.nanos = 0L;
+    }
+
+    public long getNanos()
+    {
+        return this.nanos;
+    }
+
+    public long getEntriesScanned()
+    {
+        return this.input.getEntriesScanned();
+    }
+
+    public long getEntriesMatched()
+    {
+        return this.entriesMatched.sum();
+    }
+
+    public long getBytesRead()
+    {
+        return this.input.getBytesRead();
+    }
+
+    public long getBytesWritten()
+    {
+        return this.output.getBytesWritten();
+    }
+
+    public long getEntriesWritten()
+    {
+        return this.output.getEntriesWritten();
+    }
+
+    public long getImagesDecoded()
+    {
+        return this.imagesDecoded.sum();
+    }
+
+    public long getImagesEncoded()
+    {
+        return this.imagesEncoded.sum();
+    }
+
+    /**
+     * Returns the number of failures by error type.
+     *
+     * @return The failures.
+     */
+    public synchronized @NotNull Map<ErrorType, Integer> getFailures()
+    {
+        return new EnumMap<>(this.failures);
+    }
+
+    public @NotNull JsonObject toJson()
+    {
+        JsonObject json = new JsonObject();
+        json.addProperty("time_ms", this.nanos / 1_000_000.0);
+        json.addProperty("entries_scanned", this.getEntriesScanned());
+        json.addProperty("entries_matched", this.getEntriesMatched());
+        json.addProperty("entries_written", this.getEntriesWritten());
+        json.addProperty("bytes_read", this.getBytesRead());
+        json.addProperty("bytes_written", this.getBytesWritten());
+        json.addProperty("images_decoded", this.getImagesDecoded());
+        json.addProperty("images_encoded", this.getImagesEncoded());
+        JsonObject failures = new JsonObject();
+        this.getFailures().forEach((type, count) -> failures.addProperty(type.name().toLowerCase(Locale.ROOT), count));
+        json.add("failures", failures);
+        return json;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(Locale.ROOT, "%.2fms, %d scanned, %d matched, %d written, %d B read, %d B written, %d images decoded, %d encoded, %d failed",
+                this.nanos / 1_000_000.0, this.getEntriesScanned(), this.getEntriesMatched(), this.getEntriesWritten(),
+                this.getBytesRead(), this.getBytesWritten(), this.getImagesDecoded(), this.getImagesEncoded(),
+                this.getFailures().values().stream().mapToInt(Integer::intValue).sum());
+    }
+}
@@ -26,11 +26,14 @@ import me.lambdaurora.mcpatcherpatcher.image.ImageProvider;
 import org.aperlambda.lambdacommon.Identifier;
 import org.aperlambda.lambdacommon.LambdaConstants;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -56,6 +59,60 @@ public class RETConverter extends Converter
     public @NotNull Map<Identifier, ErrorType> convert(@NotNull ImageProvider imageProvider)
     {
         Map<Identifier, ErrorType> failed = new HashMap<>();
+
+        this.collect(null).forEach(this::convert);
+
+        return failed;
+    }
+
+    /**
+     * Converts again the RET variant sets which contain a changed texture, or whose CET properties file was added or deleted.
+     * <p>
+     * Only the textures of the affected variant sets are collected and copied.
+     *
+     * @param imageProvider An image provider.
+     * @param changed The assets which were added, modified or deleted since the last conversion.
+     * @return A map of failed conversions and their error type.
+     */
+    @Override
+    public @NotNull Map<Identifier, ErrorType> convert(@NotNull ImageProvider imageProvider, @NotNull Set<Identifier> changed)
+    {
+        Map<Identifier, ErrorType> failed = new HashMap<>();
+
+        Set<Identifier> affected = new HashSet<>();
+        for (Identifier id : changed) {
+            if (!id.getName().startsWith(CETConverter.CET_PARENT + "/"))
+                continue;
+
+            Matcher matcher;
+            if (id.getName().endsWith(".png") && !id.getName().endsWith("-.png"))
+                matcher = RET_PATTERN.matcher(id.getName());
+            else if (id.getName().endsWith(".properties"))
+                matcher = CETConverter.CET_PATTERN.matcher(id.getName());
+            else
+                continue;
+
+            if (matcher.find() && matcher.group("type") != null && matcher.group("name") != null) {
+                String sub = matcher.group("sub") == null ? "" : matcher.group("sub");
+                affected.add(new Identifier(id.getNamespace(),
+                        "varied/textures/" + matcher.group("type") + "/" + sub + matcher.group("name") + ".json"));
+            }
+        }
+
+        if (!affected.isEmpty())
+            this.collect(affected).forEach(this::convert);
+
+        return failed;
+    }
+
+    /**
+     * Collects the RET textures which are not handled by a CET properties file.
+     *
+     * @param affected The VMT metadata file identifiers of the variant sets to collect, or null to collect every variant set.
+     * @return The textures by VMT metadata file identifier.
+     */
+    private @NotNull Map<Identifier, List<TextureEntry>> collect(@Nullable Set<Identifier> affected)
+    {
         Map<Identifier, List<TextureEntry>> retIds = new HashMap<>();
         this.input.getNamespaces(ResourceType.ASSETS).stream()
                 .map(namespace -> new Identifier(namespace, CETConverter.CET_PARENT))
@@ -78,23 +135,23 @@ public class RETConverter extends Converter
 
                                 String path = type + "/" + sub + name;
 
+                                Identifier vmtId = new Identifier(id.getNamespace(),
+                                        "varied/textures/" + path + ".json");
+                                if (affected != null && !affected.contains(vmtId))
+                                    return;
+
                                 Identifier propertiesId = new Identifier(id.getNamespace(),
                                         CETConverter.CET_PARENT).sub(path + ".properties");
 
                                 if (this.input.has(ResourceType.ASSETS, propertiesId)) {
                                     return;
                                 }
-
-                                Identifier vmtId = new Identifier(id.getNamespace(),
-                                        "varied/textures/" + path + ".json");
+                                this.metrics.matched();
 
                                 retIds.computeIfAbsent(vmtId, k -> new ArrayList<>()).add(new TextureEntry(type, sub, name, n, id));
                             }
                         }));
-
-        retIds.forEach(this::convert);
-
-        return failed;
+        return retIds;
     }
 
     /**
@@ -24,25 +24,36 @@ import me.lambdaurora.mcpatcherpatcher.ErrorType;
 import me.lambdaurora.mcpatcherpatcher.ResourceType;
 import me.lambdaurora.mcpatcherpatcher.fs.ResourceAccessor;
 import me.lambdaurora.mcpatcherpatcher.image.BasicImage;
+import me.lambdaurora.mcpatcherpatcher.image.ImageCache;
+import me.lambdaurora.mcpatcherpatcher.image.ImageInfo;
 import me.lambdaurora.mcpatcherpatcher.image.ImageProvider;
 import me.lambdaurora.mcpatcherpatcher.mcpatcher.MCPatcherParser;
 import org.aperlambda.lambdacommon.Identifier;
 import org.aperlambda.lambdacommon.LambdaConstants;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Properties;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Represents the converter for Custom Sky Boxes.
  * <p>
- * Converts to the fabricskyboxes (FSB) format.
+ * Converts to the fabricskyboxes (FSB) format. The sky textures are decoded and their faces encoded in parallel,
+ * the generated resources are then merged in discovery order.
  *
  * @author FlashyReese
  * @version 1.0.0
@@ -57,31 +68,252 @@ public class SkyConverter extends Converter implements Closeable
     public static final String MCPATCHER_SKY_PARENT = "mcpatcher/sky";
     public static final Pattern MCPATCHER_SKY_PATTERN = Pattern.compile("mcpatcher/sky/(?<world>\\w+)/(?<name>\\w+).properties$");
 
-    private final Map<Identifier, byte[]> cached = new HashMap<>();
+    private static final String[] FACES = {"top", "bottom", "north", "south", "east", "west"};
+    /**
+     * The origin of each face in the source texture, in face size units.
+     */
+    private static final int[][] FACE_ORIGINS = {{1, 0}, {0, 0}, {0, 1}, {2, 1}, {1, 1}, {2, 0}};
+    /**
+     * The maximum amount of bytes read when probing a sky texture.
+     */
+    private static final int PROBE_LIMIT = 64;
+
+    /**
+     * The default amount of memory kept by released sky textures, 64 MiB.
+     */
+    public static final long DEFAULT_TEXTURE_CACHE_SIZE = 64L << 20;
+
+    private final ForkJoinPool pool;
+    private final long textureCacheSize;
+    private final Map<Identifier, byte[]> cached = new LinkedHashMap<>();
+    private final Set<Identifier> written = new HashSet<>();
+    /**
+     * The identifiers of the metadata pointing to each written face texture, a face is never written again without them.
+     */
+    private final Map<Identifier, Set<Identifier>> references = new HashMap<>();
+    /**
+     * The decoded sky textures kept between the conversions of modified resources, until {@link #close()}.
+     */
+    private ImageCache<Identifier> textures;
+    private boolean streaming = false;
 
     public SkyConverter(@NotNull ResourceAccessor input, @NotNull ResourceAccessor output)
+    {
+        this(input, output, ForkJoinPool.commonPool());
+    }
+
+    public SkyConverter(@NotNull ResourceAccessor input, @NotNull ResourceAccessor output, @NotNull ForkJoinPool pool)
+    {
+        this(input, output, pool, DEFAULT_TEXTURE_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a new sky converter.
+     *
+     * @param input The input resource accessor.
+     * @param output The output resource accessor.
+     * @param pool The pool on which the sky textures are decoded and their faces encoded.
+     * @param textureCacheSize The maximum amount of memory in bytes kept by the decoded sky textures which are not in use.
+     */
+    public SkyConverter(@NotNull ResourceAccessor input, @NotNull ResourceAccessor output, @NotNull ForkJoinPool pool, long textureCacheSize)
     {
         super(input, output);
+        this.pool = pool;
+        this.textureCacheSize = textureCacheSize;
+    }
+
+    /**
+     * Sets whether the generated resources are written to the output as soon as they are ready.
+     * <p>
+     * By default they are kept in memory until {@link #close()}, which makes the memory used grow with the size of the pack.
+     * When streaming, the outputs are written in discovery order while the next layers are processed,
+     * and only a few layers are processed ahead of the written ones.
+     *
+     * @param streaming True to stream the generated resources, else false.
+     */
+    public void setStreaming(boolean streaming)
+    {
+        this.streaming = streaming;
     }
 
     @Override
     public @NotNull Map<Identifier, ErrorType> convert(@NotNull ImageProvider imageProvider)
     {
-        Map<Identifier, ErrorType> failed = new HashMap<>();
-        this.convertNamespace(imageProvider, failed, OPTIFINE_SKY_PARENT, OPTIFINE_SKY_PATTERN);
-        this.convertNamespace(imageProvider, failed, MCPATCHER_SKY_PARENT, MCPATCHER_SKY_PATTERN);
+        Map<Identifier, ErrorType> failed = new ConcurrentHashMap<>();
+        Map<Identifier, Map<Identifier, ErrorType>> sources = new LinkedHashMap<>();
+        List<SkyLayer> layers = new ArrayList<>();
+        this.collectLayers(sources, layers, OPTIFINE_SKY_PARENT, OPTIFINE_SKY_PATTERN);
+        this.collectLayers(sources, layers, MCPATCHER_SKY_PARENT, MCPATCHER_SKY_PATTERN);
+        this.reportSources(sources, id -> true, failed);
+        this.references.clear();
+
+        // Several layers may use the same texture, it is only decoded once.
+        ImageCache<Identifier> textures = new ImageCache<>(this.textureCacheSize);
+        try {
+            this.convert(imageProvider, layers, textures, failed);
+        } finally {
+            textures.close();
+        }
+
         return failed;
     }
 
     /**
-     * Converts a specific namespace
+     * Converts again the sky layers whose properties file or texture changed, the generated resources are written before returning.
+     * <p>
+     * The decoded textures are kept until {@link #close()}, only the changed textures are decoded again.
+     * The layers pointing to a face of a converted layer are converted again too, as the face may not have the same pixels anymore.
+     *
+     * @param imageProvider An image provider.
+     * @param changed The assets which were added, modified or deleted since the last conversion.
+     * @return A map of failed conversions and their error type.
+     */
+    @Override
+    public @NotNull Map<Identifier, ErrorType> convert(@NotNull ImageProvider imageProvider, @NotNull Set<Identifier> changed)
+    {
+        Map<Identifier, ErrorType> failed = new ConcurrentHashMap<>();
+        if (changed.isEmpty())
+            return failed;
+
+        if (this.textures == null)
+            this.textures = new ImageCache<>(this.textureCacheSize);
+        changed.forEach(this.textures::invalidate);
+
+        Map<Identifier, Map<Identifier, ErrorType>> sources = new LinkedHashMap<>();
+        List<SkyLayer> layers = new ArrayList<>();
+        this.collectLayers(sources, layers, OPTIFINE_SKY_PARENT, OPTIFINE_SKY_PATTERN);
+        this.collectLayers(sources, layers, MCPATCHER_SKY_PARENT, MCPATCHER_SKY_PATTERN);
+
+        // The layers generating the same metadata are converted together, so the last one still wins.
+        Set<Identifier> fsbIds = new HashSet<>();
+        for (SkyLayer layer : layers) {
+            if (changed.contains(layer.propertiesId) || changed.contains(layer.textureId))
+                fsbIds.add(layer.fsbId);
+        }
+        // Faces are deduplicated across layers, the layers pointing to a face written again are converted again too.
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (SkyLayer layer : layers) {
+                if (!fsbIds.contains(layer.fsbId))
+                    continue;
+                for (Identifier faceId : layer.faceIds) {
+                    for (Identifier fsbId : this.references.getOrDefault(faceId, Collections.emptySet()))
+                        grown |= fsbIds.add(fsbId);
+                }
+            }
+        }
+        layers.removeIf(layer -> !fsbIds.contains(layer.fsbId));
+        this.references.values().forEach(users -> users.removeAll(fsbIds));
+
+        // Only the properties files which changed or are converted again are reported.
+        Set<Identifier> reported = new HashSet<>(changed);
+        layers.forEach(layer -> reported.add(layer.propertiesId));
+        this.reportSources(sources, reported::contains, failed);
+
+        try {
+            this.convert(imageProvider, layers, this.textures, failed);
+        } finally {
+            this.flush();
+        }
+
+        return failed;
+    }
+
+    /**
+     * Converts the specified sky layers.
      *
      * @param imageProvider The Image Provider
+     * @param layers The sky layers, in discovery order.
+     * @param textures The cache of the decoded sky textures.
      * @param failed The Identifier-ErrorType Map
+     */
+    private void convert(@NotNull ImageProvider imageProvider, @NotNull List<SkyLayer> layers, @NotNull ImageCache<Identifier> textures,
+                         @NotNull Map<Identifier, ErrorType> failed)
+    {
+        // The first layer producing a face encodes it, the next ones reuse its result.
+        Map<Identifier, CompletableFuture<FaceTexture>> faces = new HashMap<>();
+        for (SkyLayer layer : layers) {
+            for (int face = 0; face < FACES.length; face++) {
+                CompletableFuture<FaceTexture> future = faces.get(layer.faceIds[face]);
+                if (future == null) {
+                    future = new CompletableFuture<>();
+                    faces.put(layer.faceIds[face], future);
+                    layer.owned[face] = true;
+                }
+                layer.faces.add(future);
+            }
+        }
+
+        // The JSON of a layer is replaced by the next layers with the same identifier.
+        Map<Identifier, Integer> lastLayers = new HashMap<>();
+        for (int i = 0; i < layers.size(); i++)
+            lastLayers.put(layers.get(i).fsbId, i);
+
+        // Faces with the same pixels are only encoded once, whatever their identifier.
+        Map<String, CompletableFuture<FaceTexture>> encoded = new ConcurrentHashMap<>();
+        // When streaming, only a few layers are processed ahead of the one being written.
+        int window = this.streaming ? this.pool.getParallelism() * 2 : layers.size();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+
+        // Merged in discovery order, so the output does not depend on scheduling.
+        // The first face with some content is written, the next faces with the same content point to it.
+        Map<Identifier, Identifier> resolved = new HashMap<>();
+        Map<String, Identifier> contents = new HashMap<>();
+        Map<Identifier, byte[]> pendingJson = new HashMap<>();
+        try {
+            for (int i = 0; i < layers.size(); i++) {
+                while (tasks.size() < layers.size() && tasks.size() <= i + window) {
+                    SkyLayer layer = layers.get(tasks.size());
+                    tasks.add(this.pool.submit(() -> this.processLayer(imageProvider, textures, encoded, layer, failed)));
+                }
+                tasks.get(i).join();
+
+                SkyLayer layer = layers.get(i);
+                if (layer.decoded) {
+                    JsonObject texturesObject = layer.json.getAsJsonObject("textures");
+                    for (int face = 0; face < FACES.length; face++) {
+                        Identifier faceId = layer.faceIds[face];
+                        Identifier target = resolved.get(faceId);
+                        if (target == null) {
+                            FaceTexture texture = layer.getFace(face);
+                            if (texture == null)
+                                continue;
+                            target = contents.putIfAbsent(texture.hash, faceId);
+                            if (target == null) {
+                                target = faceId;
+                                this.writeFace(faceId, texture.bytes);
+                                // Every next face with this content points to this one, its bytes are not needed anymore.
+                                texture.bytes = null;
+                            }
+                            resolved.put(faceId, target);
+                        }
+                        texturesObject.addProperty(FACES[face], target.toString());
+                        this.references.computeIfAbsent(target, id -> new HashSet<>()).add(layer.fsbId);
+                    }
+                    pendingJson.put(layer.fsbId, LambdaConstants.GSON_PRETTY.toJson(layer.json).getBytes());
+                }
+
+                if (lastLayers.get(layer.fsbId) == i) {
+                    byte[] json = pendingJson.remove(layer.fsbId);
+                    if (json != null)
+                        this.writeJson(layer.fsbId, json);
+                }
+            }
+        } finally {
+            tasks.forEach(ForkJoinTask::quietlyJoin);
+        }
+    }
+
+    /**
+     * Collects the sky layers of a specific namespace
+     *
+     * @param sources The failed conversions of each matched properties file, filled in discovery order.
+     * @param layers The collected layers
      * @param skyParent The parent namespace
      * @param pattern The pattern for namespace
      */
-    private void convertNamespace(ImageProvider imageProvider, Map<Identifier, ErrorType> failed, String skyParent, Pattern pattern)
+    private void collectLayers(Map<Identifier, Map<Identifier, ErrorType>> sources, List<SkyLayer> layers, String skyParent, Pattern pattern)
     {
         this.input.getNamespaces(ResourceType.ASSETS).stream()
                 .map(namespace -> new Identifier(namespace, skyParent))
@@ -90,6 +322,9 @@ public class SkyConverter extends Converter implements Closeable
                         .forEach(id -> {
                             Matcher matcher = pattern.matcher(id.getName());
                             if (matcher.find()) {
+                                Map<Identifier, ErrorType> failed = new HashMap<>();
+                                sources.put(id, failed);
+
                                 String world = matcher.group("world");
                                 String name = matcher.group("name");
 
@@ -143,101 +378,268 @@ public class SkyConverter extends Converter implements Closeable
                                     textureId = new Identifier(id.getNamespace(), parent.getName() + String.format("/%s/%s.png", world, name));
                                 }
 
-                                InputStream textureInputStream = this.input.getInputStream(ResourceType.ASSETS, textureId);
-                                if (textureInputStream == null) {
-                                    failed.put(textureId, ErrorType.INPUTSTREAM_IO);
-                                    return;
-                                }
-
-                                BasicImage textureImage;
-                                try {
-                                    textureImage = imageProvider.readImage(textureInputStream);
-                                } catch (IOException e) {
-                                    failed.put(textureId, ErrorType.INPUTSTREAM_IO);
+                                if (properties.size() == 1) {
+                                    // Nothing to convert, only report a missing texture.
+                                    if (!this.input.has(ResourceType.ASSETS, textureId))
+                                        failed.put(textureId, ErrorType.INPUTSTREAM_IO);
                                     return;
                                 }
 
-                                this.convert(fsbId, textureId, textureImage, properties, world);
-
-                                textureImage.close();
+                                Identifier[] faceIds = getFaceIds(textureId);
+                                layers.add(new SkyLayer(id, fsbId, textureId, faceIds, this.createJson(faceIds, properties, world)));
                             }
                         }));
     }
 
     /**
-     * Converts one MCPatcher file to FSB format.
+     * Counts the matched properties files accepted by the filter, and reports their failed conversions.
      *
-     * @param fsbId The FSB metadata file identifier.
-     * @param textureId The texture file identifier.
-     * @param textureImage The texture BasicImage
+     * @param sources The failed conversions of each matched properties file.
+     * @param filter The filter of the properties files.
+     * @param failed The Identifier-ErrorType Map
+     */
+    private void reportSources(@NotNull Map<Identifier, Map<Identifier, ErrorType>> sources, @NotNull Predicate<Identifier> filter,
+                               @NotNull Map<Identifier, ErrorType> failed)
+    {
+        sources.forEach((id, sourceFailed) -> {
+            if (filter.test(id)) {
+                this.metrics.matched();
+                failed.putAll(sourceFailed);
+            }
+        });
+    }
+
+    /**
+     * Creates the FSB metadata of one MCPatcher file.
+     *
+     * @param faceIds The identifiers of the face textures.
      * @param properties The MCPatcher properties file.
      * @param world The world name
+     * @return The FSB metadata.
      */
-    private void convert(@NotNull Identifier fsbId, @NotNull Identifier textureId, @NotNull BasicImage textureImage, @NotNull Properties properties, @NotNull String world)
+    private @NotNull JsonObject createJson(@NotNull Identifier[] faceIds, @NotNull Properties properties, @NotNull String world)
     {
-        JsonObject json = null;
-        if (properties.size() > 1) {
-            json = new JsonObject();
+        JsonObject json = new JsonObject();
 
-            json.addProperty("schemaVersion", 2);
-            json.addProperty("type", "square-textured");
+        json.addProperty("schemaVersion", 2);
+        json.addProperty("type", "square-textured");
 
-            json.addProperty("blend", properties.containsKey("blend"));
+        json.addProperty("blend", properties.containsKey("blend"));
+
+        JsonObject texturesObject = new JsonObject();
+        for (int face = 0; face < FACES.length; face++) {
+            texturesObject.addProperty(FACES[face], faceIds[face].toString());
+        }
+        json.add("textures", texturesObject);
 
-            JsonObject texturesObject = new JsonObject();
-            this.processSkyboxTexture(texturesObject, textureId, textureImage);
-            json.add("textures", texturesObject);
+        JsonObject propertiesObject = new JsonObject();
+        this.processProperties(propertiesObject, properties);
+        json.add("properties", propertiesObject);
 
-            JsonObject propertiesObject = new JsonObject();
-            this.processProperties(propertiesObject, properties);
-            json.add("properties", propertiesObject);
+        JsonObject conditionsObject = new JsonObject();
+        this.processConditions(conditionsObject, properties, world);
+        json.add("conditions", conditionsObject);
 
-            JsonObject conditionsObject = new JsonObject();
-            this.processConditions(conditionsObject, properties, world);
-            json.add("conditions", conditionsObject);
+        return json;
+    }
 
+    /**
+     * Returns the identifiers of the face textures generated from a skybox texture.
+     *
+     * @param textureId The Skybox Texture Identifier file.
+     * @return The face identifiers, in the order of {@link #FACES}.
+     */
+    private static @NotNull Identifier[] getFaceIds(@NotNull Identifier textureId)
+    {
+        String textureName = textureId.getName().substring(textureId.getName().lastIndexOf("/") + 1, textureId.getName().lastIndexOf("."));
+        Identifier[] faceIds = new Identifier[FACES.length];
+        for (int face = 0; face < FACES.length; face++) {
+            faceIds[face] = new Identifier(FABRICSKYBOXES_NAMESPACE, String.format("%s/%s.png", FABRICSKYBOXES_PARENT, String.format("%s_%s", textureName, FACES[face])));
         }
+        return faceIds;
+    }
 
-        if (json == null)
-            return;
+    /**
+     * Decodes the texture of a sky layer and encodes its faces, runs on the pool.
+     *
+     * @param imageProvider The Image Provider
+     * @param textures The cache of the decoded sky textures.
+     * @param encoded The encoded faces by content hash.
+     * @param layer The sky layer.
+     * @param failed The Identifier-ErrorType Map
+     */
+    private void processLayer(@NotNull ImageProvider imageProvider, @NotNull ImageCache<Identifier> textures,
+                              @NotNull Map<String, CompletableFuture<FaceTexture>> encoded, @NotNull SkyLayer layer,
+                              @NotNull Map<Identifier, ErrorType> failed)
+    {
+        try {
+            BasicImage textureImage;
+            try {
+                textureImage = textures.acquire(layer.textureId, () -> this.decode(imageProvider, layer.textureId));
+            } catch (InvalidTextureSizeException e) {
+                failed.put(layer.textureId, ErrorType.INVALID_IMAGE_SIZE);
+                return;
+            } catch (IOException e) {
+                failed.put(layer.textureId, ErrorType.INPUTSTREAM_IO);
+                return;
+            }
+            layer.decoded = true;
+
+            try {
+                int scale = textureImage.getHeight() / 2;
+                List<ForkJoinTask<?>> faceTasks = new ArrayList<>();
+                for (int face = 0; face < FACES.length; face++) {
+                    int index = face;
+                    faceTasks.add(ForkJoinTask.adapt(() -> this.processFace(layer, textureImage, encoded, scale, index)).fork());
+                }
+                // Every face must be done with the texture before it is released, even if one of them failed.
+                faceTasks.forEach(ForkJoinTask::quietlyJoin);
+                // Rethrows the first failure.
+                faceTasks.forEach(ForkJoinTask::join);
+            } finally {
+                textures.release(layer.textureId);
+            }
+        } finally {
+            // Layers sharing faces with this one must never wait forever.
+            for (int face = 0; face < FACES.length; face++) {
+                if (layer.owned[face])
+                    layer.faces.get(face).complete(null);
+            }
+        }
+    }
 
-        String res = LambdaConstants.GSON_PRETTY.toJson(json);
-        this.cached.put(fsbId, res.getBytes());
+    /**
+     * Decodes a sky texture, called at most once per texture and conversion by the texture cache.
+     * <p>
+     * The header of the texture is probed first, so textures which are not in the 3:2 layout are rejected without being decoded.
+     *
+     * @param imageProvider The Image Provider
+     * @param textureId The Skybox Texture Identifier file.
+     * @return The decoded texture.
+     * @throws IOException If the texture is missing, is not in the 3:2 layout or could not be decoded.
+     */
+    private @NotNull BasicImage decode(@NotNull ImageProvider imageProvider, @NotNull Identifier textureId) throws IOException
+    {
+        InputStream inputStream = this.input.getInputStream(ResourceType.ASSETS, textureId);
+        if (inputStream == null)
+            throw new FileNotFoundException(textureId.toString());
+
+        try (InputStream textureInputStream = new BufferedInputStream(inputStream)) {
+            textureInputStream.mark(PROBE_LIMIT);
+            ImageInfo info = null;
+            try {
+                info = imageProvider.probe(textureInputStream);
+            } catch (IOException e) {
+                // The provider may still be able to decode other image formats, the size is checked once decoded.
+            }
+            textureInputStream.reset();
+            if (info != null)
+                checkTextureSize(textureId, info.getWidth(), info.getHeight());
+
+            BasicImage textureImage = imageProvider.readImage(textureInputStream);
+            this.metrics.imageDecoded();
+            if (info == null) {
+                try {
+                    checkTextureSize(textureId, textureImage.getWidth(), textureImage.getHeight());
+                } catch (InvalidTextureSizeException e) {
+                    textureImage.close();
+                    throw e;
+                }
+            }
+            return textureImage;
+        }
     }
 
     /**
-     * Converts Optifine skybox textures to FSB format.
+     * Checks that the six faces of a sky texture fit in it: three columns and two rows of square faces.
      *
-     * @param json The FSB JSON file.
      * @param textureId The Skybox Texture Identifier file.
+     * @param width The width of the texture.
+     * @param height The height of the texture.
+     * @throws InvalidTextureSizeException If the faces do not fit in the texture.
+     */
+    private static void checkTextureSize(@NotNull Identifier textureId, int width, int height) throws InvalidTextureSizeException
+    {
+        if (height < 2 || width < height / 2 * 3)
+            throw new InvalidTextureSizeException(textureId + " is " + width + "x" + height + ", expected a 3:2 layout.");
+    }
+
+    /**
+     * Generates a face texture, unless another layer already produces it.
+     *
+     * @param layer The sky layer.
      * @param textureImage The Skybox Texture file.
+     * @param encoded The encoded faces by content hash.
+     * @param scale The size of a face.
+     * @param face The index of the face.
      */
-    private void processSkyboxTexture(@NotNull JsonObject json, @NotNull Identifier textureId, @NotNull BasicImage textureImage)
+    private void processFace(@NotNull SkyLayer layer, @NotNull BasicImage textureImage, @NotNull Map<String, CompletableFuture<FaceTexture>> encoded,
+                             int scale, int face)
     {
-        String textureName = textureId.getName().substring(textureId.getName().lastIndexOf("/") + 1, textureId.getName().lastIndexOf("."));
-        int scale = textureImage.getHeight() / 2;
-        this.processFaceTexture(json, textureName, "top", textureImage.getSubImage(scale, 0, scale, scale));
-        this.processFaceTexture(json, textureName, "bottom", textureImage.getSubImage(0, 0, scale, scale));
-        this.processFaceTexture(json, textureName, "north", textureImage.getSubImage(0, scale, scale, scale));
-        this.processFaceTexture(json, textureName, "south", textureImage.getSubImage(scale * 2, scale, scale, scale));
-        this.processFaceTexture(json, textureName, "east", textureImage.getSubImage(scale, scale, scale, scale));
-        this.processFaceTexture(json, textureName, "west", textureImage.getSubImage(scale * 2, 0, scale, scale));
+        if (layer.owned[face]) {
+            layer.faces.get(face).complete(this.encodeFace(textureImage, encoded, scale, face));
+        } else if (layer.faces.get(face).join() == null) {
+            // The layer producing this face could not decode its texture.
+            layer.fallbacks[face] = this.encodeFace(textureImage, encoded, scale, face);
+        }
+    }
+
+    private @NotNull FaceTexture encodeFace(@NotNull BasicImage textureImage, @NotNull Map<String, CompletableFuture<FaceTexture>> encoded, int scale, int face)
+    {
+        BasicImage texture = textureImage.getSubImage(FACE_ORIGINS[face][0] * scale, FACE_ORIGINS[face][1] * scale, scale, scale);
+        try {
+            String hash = hash(texture);
+            CompletableFuture<FaceTexture> future = new CompletableFuture<>();
+            CompletableFuture<FaceTexture> existing = encoded.putIfAbsent(hash, future);
+            if (existing != null)
+                return existing.join();
+
+            try {
+                FaceTexture result = new FaceTexture(hash, texture.getBytes());
+                this.metrics.imageEncoded();
+                future.complete(result);
+                return result;
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                throw e;
+            }
+        } finally {
+            texture.close();
+        }
     }
 
     /**
-     * Generates new face textures.
+     * Returns the hash of the dimensions and pixels of an image.
      *
-     * @param json The FSB JSON file.
-     * @param textureName The Name of Skybox Texture file.
-     * @param face The Name of Texture Face.
-     * @param texture The Texture Face file.
+     * @param image The image.
+     * @return The SHA-1 hash as a hexadecimal string.
      */
-    private void processFaceTexture(@NotNull JsonObject json, @NotNull String textureName, @NotNull String face, @NotNull BasicImage texture)
+    private static @NotNull String hash(@NotNull BasicImage image)
     {
-        Identifier faceId = new Identifier(FABRICSKYBOXES_NAMESPACE, String.format("%s/%s.png", FABRICSKYBOXES_PARENT, String.format("%s_%s", textureName, face)));
-        if (!this.cached.containsKey(faceId))
-            this.cached.put(faceId, texture.getBytes());
-        json.addProperty(face, faceId.toString());
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        int width = image.getWidth();
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(8, width * 4));
+        buffer.putInt(width).putInt(image.getHeight());
+        digest.update(buffer.array(), 0, 8);
+
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRow(y, row);
+            buffer.clear();
+            buffer.asIntBuffer().put(row);
+            digest.update(buffer.array(), 0, width * 4);
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest())
+            builder.append(String.format("%02x", b));
+        return builder.toString();
     }
 
     /**
@@ -329,8 +731,38 @@ public class SkyConverter extends Converter implements Closeable
         json.add("worlds", worlds);
     }
 
-    @Override
-    public void close()
+    /**
+     * Writes a face texture, the first face written with an identifier wins.
+     *
+     * @param faceId The identifier of the face texture.
+     * @param bytes The encoded face texture.
+     */
+    private void writeFace(@NotNull Identifier faceId, @NotNull byte[] bytes)
+    {
+        if (!this.streaming)
+            this.cached.putIfAbsent(faceId, bytes);
+        else if (this.written.add(faceId))
+            this.output.put(ResourceType.ASSETS, faceId, bytes);
+    }
+
+    /**
+     * Writes the FSB metadata of a layer, replacing the metadata buffered with the same identifier.
+     *
+     * @param fsbId The identifier of the metadata.
+     * @param bytes The metadata.
+     */
+    private void writeJson(@NotNull Identifier fsbId, @NotNull byte[] bytes)
+    {
+        if (!this.streaming)
+            this.cached.put(fsbId, bytes);
+        else if (this.written.add(fsbId))
+            this.output.put(ResourceType.ASSETS, fsbId, bytes);
+    }
+
+    /**
+     * Writes the generated resources kept in memory, and forgets the written ones.
+     */
+    private void flush()
     {
         for (Map.Entry<Identifier, byte[]> entry : this.cached.entrySet()) {
             Identifier identifier = entry.getKey();
@@ -339,6 +771,18 @@ public class SkyConverter extends Converter implements Closeable
         }
 
         this.cached.clear();
+        this.written.clear();
+    }
+
+    @Override
+    public void close()
+    {
+        this.flush();
+
+        if (this.textures != null) {
+            this.textures.close();
+            this.textures = null;
+        }
     }
 
     @Override
@@ -346,4 +790,63 @@ public class SkyConverter extends Converter implements Closeable
     {
         return "Sky";
     }
+
+    /**
+     * Thrown when a sky texture is not in the 3:2 layout.
+     */
+    private static class InvalidTextureSizeException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private InvalidTextureSizeException(@NotNull String message)
+        {
+            super(message);
+        }
+    }
+
+    /**
+     * Represents a sky layer: one MCPatcher properties file and its texture.
+     */
+    private static class SkyLayer
+    {
+        private final Identifier propertiesId;
+        private final Identifier fsbId;
+        private final Identifier textureId;
+        private final Identifier[] faceIds;
+        private final JsonObject json;
+        private final boolean[] owned = new boolean[FACES.length];
+        private final List<CompletableFuture<FaceTexture>> faces = new ArrayList<>(FACES.length);
+        private final FaceTexture[] fallbacks = new FaceTexture[FACES.length];
+        private volatile boolean decoded = false;
+
+        private SkyLayer(@NotNull Identifier propertiesId, @NotNull Identifier fsbId, @NotNull Identifier textureId, @NotNull Identifier[] faceIds,
+                         @NotNull JsonObject json)
+        {
+            this.propertiesId = propertiesId;
+            this.fsbId = fsbId;
+            this.textureId = textureId;
+            this.faceIds = faceIds;
+            this.json = json;
+        }
+
+        private @Nullable FaceTexture getFace(int face)
+        {
+            return this.owned[face] ? this.faces.get(face).join() : this.fallbacks[face];
+        }
+    }
+
+    /**
+     * Represents an encoded face texture and the hash of its pixels.
+     */
+    private static class FaceTexture
+    {
+        private final String hash;
+        private byte[] bytes;
+
+        private FaceTexture(@NotNull String hash, @NotNull byte[] bytes)
+        {
+            this.hash = hash;
+            this.bytes = bytes;
+        }
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fs;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Represents a resource output stream buffering the resource in memory, the resource is put with {@link ResourceAccessor#put(String, byte[])} once closed.
+ * <p>
+ * If the resource fills the buffer exactly, the buffer itself is put without being copied.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class BufferedResourceOutputStream extends ResourceOutputStream
+{
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    private final ResourceAccessor accessor;
+    private final String path;
+    private byte[] buffer;
+    private int count = 0;
+
+    public BufferedResourceOutputStream(@NotNull ResourceAccessor accessor, @NotNull String path)
+    {
+        this(accessor, path, 8192);
+    }
+
+    /**
+     * Creates a new buffered resource output stream.
+     *
+     * @param accessor The accessor in which the resource is put.
+     * @param path The path of the resource.
+     * @param size The initial size of the buffer, ideally the size of the resource.
+     */
+    public BufferedResourceOutputStream(@NotNull ResourceAccessor accessor, @NotNull String path, int size)
+    {
+        if (size < 0)
+            throw new IllegalArgumentException("Negative buffer size " + size + ".");
+        this.accessor = accessor;
+        this.path = path;
+        this.buffer = new byte[size];
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        this.ensureCapacity(1);
+        this.buffer[this.count++] = (byte) b;
+    }
+
+    @Override
+    public void write(@NotNull byte[] b, int off, int len) throws IOException
+    {
+        if (off < 0 || len < 0 || len > b.length - off)
+            throw new IndexOutOfBoundsException();
+        this.ensureCapacity(len);
+        System.arraycopy(b, off, this.buffer, this.count, len);
+        this.count += len;
+    }
+
+    private void ensureCapacity(int length) throws IOException
+    {
+        if (this.buffer == null)
+            throw new IOException("Stream closed.");
+        if (length > MAX_SIZE - this.count)
+            throw new IOException("Resource " + this.path + " is too large to be buffered.");
+        int required = this.count + length;
+        if (required > this.buffer.length)
+            this.buffer = Arrays.copyOf(this.buffer, (int) Math.min(MAX_SIZE, Math.max(required, this.buffer.length * 2L)));
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (this.buffer == null)
+            return;
+        byte[] data = this.count == this.buffer.length ? this.buffer : Arrays.copyOf(this.buffer, this.count);
+        this.buffer = null;
+        if (!this.accessor.put(this.path, data))
+            throw new IOException("Could not put resource " + this.path + ".");
+    }
+
+    @Override
+    public void discard()
+    {
+        this.buffer = null;
+    }
+}
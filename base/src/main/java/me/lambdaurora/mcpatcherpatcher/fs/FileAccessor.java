@@ -22,114 +22,663 @@ import org.aperlambda.lambdacommon.Identifier;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 /**
  * Represents a file resource accessor.
+ * <p>
+ * The files are indexed with a single walk of the directory the first time they are queried,
+ * queries are then served from the index like for ZIP files. {@link #refresh()} indexes the directory again
+ * after it was modified by something else than this accessor.
+ * <p>
+ * Each file is written to a temporary file next to it, then moved into place: readers never see partially written files
+ * and failed writes leave nothing behind. With write threads, {@link #put(String, byte[])} only queues the file
+ * and the failures are reported by {@link #flush()} or {@link #close()}.
  *
  * @author LambdAurora
  * @version 1.0.0
  * @since 1.0.0
  */
-public class FileAccessor implements ResourceAccessor
+public class FileAccessor implements CloseableResourceAccessor
 {
-    private final File directory;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Path directory;
+    private final ResourceIndex index = new ResourceIndex();
+    private volatile boolean indexed = false;
+    /**
+     * The directories known to exist, to avoid checking the parent directories of each written file.
+     */
+    private final Set<Path> directories = ConcurrentHashMap.newKeySet();
+    private final AtomicLong writeCount = new AtomicLong();
+    /**
+     * The last queued write of each file being written by the write threads, older writes of a file are dropped.
+     */
+    private final ConcurrentHashMap<Path, Long> latest = new ConcurrentHashMap<>();
+    private final Object[] fileLocks;
+    private final ExecutorService writers;
+    private final Object pendingLock = new Object();
+    private int pending = 0;
+    private volatile boolean closed = false;
+    private volatile IOException failure;
 
     public FileAccessor(@NotNull File directory)
     {
-        this.directory = directory.getAbsoluteFile();
+        this(directory.toPath());
+    }
+
+    public FileAccessor(@NotNull Path directory)
+    {
+        this(directory, 0);
+    }
+
+    /**
+     * Creates a new file accessor.
+     *
+     * @param directory The root directory.
+     * @param writeThreads The number of threads writing the files, or 0 to write them on the thread calling {@link #put(String, byte[])}.
+     */
+    public FileAccessor(@NotNull Path directory, int writeThreads)
+    {
+        if (writeThreads < 0)
+            throw new IllegalArgumentException("Invalid number of write threads " + writeThreads + ".");
+        this.directory = directory.toAbsolutePath();
+        this.fileLocks = new Object[writeThreads * 4];
+        for (int i = 0; i < this.fileLocks.length; i++)
+            this.fileLocks[i] = new Object();
+        if (writeThreads == 0)
+            this.writers = null;
+        else
+            // The queue is bounded to keep the pending files from filling the memory, callers write themselves once it is full.
+            this.writers = new ThreadPoolExecutor(writeThreads, writeThreads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(writeThreads * 16), new ParallelZipOutputAccessor.DaemonFactory("MCPatcherPatcher File Writer"),
+                    (runnable, executor) -> {
+                        if (executor.isShutdown())
+                            throw new RejectedExecutionException("The file accessor is closed.");
+                        runnable.run();
+                    });
+    }
+
+    /**
+     * Returns the root directory of this accessor.
+     *
+     * @return The directory.
+     */
+    public @NotNull Path getDirectory()
+    {
+        return this.directory;
     }
 
     @Override
     public boolean has(@NotNull ResourceType type, @NotNull Identifier identifier)
     {
-        return new File(directory, ResourceAccessor.asPath(type, identifier)).exists();
+        return this.getIndex().has(type, identifier);
     }
 
     @Override
     public @NotNull Stream<Identifier> searchIn(@NotNull ResourceType type, @NotNull Identifier parent)
     {
-        File parentFile = new File(directory, ResourceAccessor.asPath(type, parent));
+        return this.getIndex().searchIn(type, parent);
+    }
 
-        if (!parentFile.exists() || !parentFile.isDirectory())
-            return Stream.<Identifier>builder().build();
+    @Override
+    public @Nullable InputStream getInputStream(@NotNull String path)
+    {
+        try {
+            return Files.newInputStream(this.directory.resolve(path));
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+    }
 
-        List<Identifier> id = new ArrayList<>();
+    @Override
+    public @NotNull Collection<String> getNamespaces(@NotNull ResourceType type)
+    {
+        return this.getIndex().getNamespaces(type);
+    }
+
+    @Override
+    public boolean put(@NotNull String path, @NotNull byte[] out)
+    {
+        if (this.closed)
+            return false;
+
+        Path file;
+        try {
+            file = this.directory.resolve(path);
+        } catch (InvalidPathException e) {
+            return false;
+        }
 
-        this.searchIn(type, parentFile.getAbsoluteFile(), id);
+        if (this.writers == null) {
+            try {
+                this.write(file, out);
+            } catch (IOException e) {
+                return false;
+            }
+        } else {
+            if (this.failure != null)
+                return false;
+
+            synchronized (this.pendingLock) {
+                this.pending++;
+            }
+            long id = this.writeCount.incrementAndGet();
+            this.latest.put(file, id);
+            try {
+                this.writers.execute(() -> {
+                    try {
+                        this.writeLatest(file, out, id);
+                    } catch (IOException e) {
+                        this.fail(e);
+                    } finally {
+                        this.done();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.done();
+                return false;
+            }
+        }
 
-        return id.stream();
+        if (this.indexed)
+            this.index.add(path);
+        return true;
     }
 
-    private void searchIn(@NotNull ResourceType type, @NotNull File parent, @NotNull List<Identifier> results)
+    @Override
+    public @NotNull ResourceOutputStream openOutput(@NotNull String path) throws IOException
     {
-        if (!parent.isDirectory()) {
-            String path = parent.getPath().replace(this.directory.getPath(), "");
-            if (path.length() == 0)
-                return;
+        if (this.closed)
+            throw new IOException("The file accessor is closed.");
+
+        Path file;
+        try {
+            file = this.directory.resolve(path);
+        } catch (InvalidPathException e) {
+            throw new IOException("Invalid resource path " + path + ".", e);
+        }
+
+        long id = 0L;
+        if (this.writers != null) {
+            // The queued writes of the file are older, they are dropped.
+            id = this.writeCount.incrementAndGet();
+            this.latest.put(file, id);
+        }
+        return this.open(file, path, id);
+    }
 
-            if (path.startsWith(File.separator)) {
-                path = path.substring(File.separator.length());
-                if (path.length() == 0)
-                    return;
+    @Override
+    public boolean transfer(@NotNull ResourceAccessor outAccessor, @NotNull ResourceType type, @NotNull Identifier from, @NotNull Identifier to)
+    {
+        return this.transfer(outAccessor, ResourceAccessor.asPath(type, from), ResourceAccessor.asPath(type, to));
+    }
+
+    /**
+     * Transfers the file at the specified path to the specified accessor.
+     * <p>
+     * The file is read through a {@link FileChannel}, files written to another file accessor are copied by the operating system when possible.
+     *
+     * @param outAccessor The output resource accessor.
+     * @param from The path of the resource in this accessor.
+     * @param to The path of the resource in the output accessor.
+     * @return True if the resource has been transferred, else false.
+     */
+    @Override
+    public boolean transfer(@NotNull ResourceAccessor outAccessor, @NotNull String from, @NotNull String to)
+    {
+        FileChannel source;
+        try {
+            source = FileChannel.open(this.directory.resolve(from), StandardOpenOption.READ);
+        } catch (IOException | InvalidPathException e) {
+            return false;
+        }
+
+        try (FileChannel input = source) {
+            ResourceOutputStream out = outAccessor.openOutput(to);
+            try {
+                out.transferFrom(input);
+            } catch (IOException | RuntimeException e) {
+                out.discard();
+                throw e;
             }
+            out.close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
 
-            if (!path.startsWith(type.getName() + File.separator))
+    /**
+     * Writes a file from a write thread, unless a newer write of the file was queued since.
+     * <p>
+     * Writes of the same file are serialized so the last queued content is always the one left in place.
+     *
+     * @param file The file.
+     * @param out The content of the file.
+     * @param id The identifier of the write.
+     * @throws IOException If the file could not be written.
+     */
+    private void writeLatest(@NotNull Path file, @NotNull byte[] out, long id) throws IOException
+    {
+        synchronized (this.getLock(file)) {
+            Long last = this.latest.get(file);
+            if (last == null || last != id)
                 return;
-            path = path.substring((type.getName() + File.separator).length());
+            try {
+                this.write(file, out);
+            } finally {
+                this.latest.remove(file, id);
+            }
+        }
+    }
 
-            int first = path.indexOf(File.separator);
-            if (first == path.length() - 1 || first == -1)
-                return;
+    /**
+     * Writes a file through a temporary file moved into place once complete.
+     *
+     * @param file The file.
+     * @param out The content of the file.
+     * @throws IOException If the file could not be written.
+     */
+    private void write(@NotNull Path file, @NotNull byte[] out) throws IOException
+    {
+        FileResourceOutputStream stream = this.open(file, null, 0L);
+        try {
+            stream.write(out);
+        } catch (IOException | RuntimeException e) {
+            stream.discard();
+            throw e;
+        }
+        stream.close();
+    }
 
-            results.add(new Identifier(path.substring(0, first), path.substring(first + 1).replaceAll(File.pathSeparator, "/")));
-        } else {
-            for (File file : parent.listFiles()) {
-                this.searchIn(type, file.getAbsoluteFile(), results);
+    /**
+     * Opens a temporary file next to the specified file.
+     *
+     * @param file The file.
+     * @param path The resource path of the file to index once written, or null if the caller indexes it.
+     * @param id The identifier of the write checked against the queued writes, or 0 to always move the file into place.
+     * @return The output stream to the temporary file.
+     * @throws IOException If the temporary file could not be created.
+     */
+    private @NotNull FileResourceOutputStream open(@NotNull Path file, @Nullable String path, long id) throws IOException
+    {
+        Path parent = file.getParent();
+        if (!this.directories.contains(parent)) {
+            Files.createDirectories(parent);
+            this.directories.add(parent);
+        }
+
+        Path temp = parent.resolve("." + file.getFileName() + "." + this.writeCount.incrementAndGet() + TEMP_SUFFIX);
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            // The directory was deleted by something else than this accessor.
+            this.directories.remove(parent);
+            Files.createDirectories(parent);
+            this.directories.add(parent);
+            channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+        return new FileResourceOutputStream(file, temp, channel, path, id);
+    }
+
+    private @NotNull Object getLock(@NotNull Path file)
+    {
+        return this.fileLocks[(file.hashCode() & Integer.MAX_VALUE) % this.fileLocks.length];
+    }
+
+    private void done()
+    {
+        synchronized (this.pendingLock) {
+            if (--this.pending == 0)
+                this.pendingLock.notifyAll();
+        }
+    }
+
+    private void fail(@NotNull IOException e)
+    {
+        if (this.failure == null)
+            this.failure = e;
+    }
+
+    /**
+     * Waits for the queued files to be written.
+     *
+     * @throws IOException If any file could not be written.
+     */
+    public void flush() throws IOException
+    {
+        synchronized (this.pendingLock) {
+            try {
+                while (this.pending != 0)
+                    this.pendingLock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the files to be written.");
             }
         }
+
+        if (this.failure != null)
+            throw this.failure;
     }
 
+    /**
+     * Waits for the queued files to be written and stops the write threads, the accessor can still be read afterwards.
+     *
+     * @throws IOException If any file could not be written.
+     */
     @Override
-    public @Nullable InputStream getInputStream(@NotNull String path)
+    public void close() throws IOException
     {
-        File file = new File(directory, path);
-        if (!file.exists())
-            return null;
+        synchronized (this) {
+            if (this.closed)
+                return;
+            this.closed = true;
+        }
+
         try {
-            return new FileInputStream(file);
-        } catch (FileNotFoundException e) {
-            return null;
+            this.flush();
+        } finally {
+            if (this.writers != null)
+                this.writers.shutdown();
         }
     }
 
-    @Override
-    public @NotNull Collection<String> getNamespaces(@NotNull ResourceType type)
+    /**
+     * Indexes the directory again, to see the files modified by something else than this accessor.
+     */
+    public synchronized void refresh()
     {
-        return Arrays.stream(new File(directory, type.getName()).listFiles()).filter(File::isDirectory).map(File::getName).collect(Collectors.toList());
+        this.index.clear();
+        this.indexed = false;
+        this.getIndex();
     }
 
-    @Override
-    public boolean put(@NotNull String path, @NotNull byte[] out)
+    /**
+     * Updates the index after a file or a directory was created, modified or deleted by something else than this accessor.
+     * <p>
+     * Unlike {@link #refresh()}, only the specified path is visited.
+     *
+     * @param path The path of the file or of the directory, relative to the root directory.
+     * @return The paths of the resources which were added, modified or removed.
+     */
+    public @NotNull List<String> update(@NotNull String path)
     {
-        File file = new File(directory, path);
-        if (!file.getParentFile().exists() && !file.getParentFile().mkdirs())
-            return false;
+        ResourceIndex index = this.getIndex();
+        Path file;
         try {
-            FileOutputStream outF = new FileOutputStream(file);
+            file = this.directory.resolve(path);
+        } catch (InvalidPathException e) {
+            return new ArrayList<>();
+        }
 
-            outF.write(out);
+        if (Files.isRegularFile(file)) {
+            List<String> paths = new ArrayList<>();
+            if (index.add(path))
+                paths.add(path);
+            return paths;
+        } else if (Files.isDirectory(file)) {
+            List<String> paths = new ArrayList<>();
+            try (Stream<Path> files = Files.walk(file, FileVisitOption.FOLLOW_LINKS)) {
+                files.filter(Files::isRegularFile)
+                        .filter(child -> !isTempFile(child.getFileName().toString()))
+                        .map(this::toResourcePath)
+                        .filter(index::add)
+                        .forEach(paths::add);
+            } catch (IOException | UncheckedIOException e) {
+                // The directory was deleted while walking it, its deletion is notified separately.
+            }
+            return paths;
+        }
+        // Deleted, either a file or a whole directory.
+        return index.removeAll(path);
+    }
 
-            outF.close();
-            return true;
+    /**
+     * Returns the index of the files of the directory, walking the directory on the first call.
+     *
+     * @return The index.
+     */
+    private @NotNull ResourceIndex getIndex()
+    {
+        if (!this.indexed) {
+            synchronized (this) {
+                if (!this.indexed) {
+                    this.walk();
+                    this.indexed = true;
+                }
+            }
+        }
+        return this.index;
+    }
+
+    private void walk()
+    {
+        if (!Files.isDirectory(this.directory))
+            return;
+
+        try {
+            Files.walkFileTree(this.directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>()
+            {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes)
+                {
+                    // Only the resource type directories contain resources.
+                    if (directory.equals(dir.getParent()) && !isResourceTypeDirectory(dir.getFileName().toString()))
+                        return FileVisitResult.SKIP_SUBTREE;
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+                {
+                    // Temporary files of the writes in progress are not resources yet.
+                    if (attributes.isRegularFile() && !isTempFile(file.getFileName().toString()))
+                        index.add(toResourcePath(file));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e)
+                {
+                    // Unreadable files and symbolic link loops are skipped.
+                    return FileVisitResult.CONTINUE;
+                }
+            });
         } catch (IOException e) {
-            return false;
+            e.printStackTrace();
+        }
+    }
+
+    private @NotNull String toResourcePath(@NotNull Path file)
+    {
+        String path = this.directory.relativize(file).toString();
+        return File.separatorChar == '/' ? path : path.replace(File.separatorChar, '/');
+    }
+
+    private static void move(@NotNull Path source, @NotNull Path target) throws IOException
+    {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean isTempFile(@NotNull String name)
+    {
+        return name.startsWith(".") && name.endsWith(TEMP_SUFFIX);
+    }
+
+    private static boolean isResourceTypeDirectory(@NotNull String name)
+    {
+        for (ResourceType type : ResourceType.values()) {
+            if (type.getName().equals(name))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes a temporary file through a small buffer, the file is moved into place once the stream is closed.
+     */
+    private class FileResourceOutputStream extends ResourceOutputStream
+    {
+        private final Path file;
+        private final Path temp;
+        private final FileChannel channel;
+        private final String path;
+        private final long id;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private boolean closed = false;
+
+        private FileResourceOutputStream(@NotNull Path file, @NotNull Path temp, @NotNull FileChannel channel, @Nullable String path, long id)
+        {
+            this.file = file;
+            this.temp = temp;
+            this.channel = channel;
+            this.path = path;
+            this.id = id;
+        }
+
+        private void ensureOpen() throws IOException
+        {
+            if (this.closed)
+                throw new IOException("Stream closed.");
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            this.ensureOpen();
+            if (!this.buffer.hasRemaining())
+                this.flushBuffer();
+            this.buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(@NotNull byte[] b, int off, int len) throws IOException
+        {
+            this.ensureOpen();
+            if (len >= this.buffer.capacity()) {
+                // Large writes skip the buffer.
+                this.flushBuffer();
+                this.writeFully(ByteBuffer.wrap(b, off, len));
+            } else {
+                if (len > this.buffer.remaining())
+                    this.flushBuffer();
+                this.buffer.put(b, off, len);
+            }
+        }
+
+        /**
+         * Writes the whole content of the specified file channel, the operating system copies it between the files when possible.
+         *
+         * @param source The file channel.
+         * @return The number of bytes written.
+         * @throws IOException If the content could not be written.
+         */
+        @Override
+        public long transferFrom(@NotNull FileChannel source) throws IOException
+        {
+            this.ensureOpen();
+            this.flushBuffer();
+            long size = source.size();
+            long position = 0L;
+            for (long transferred; position < size; position += transferred) {
+                if ((transferred = source.transferTo(position, size - position, this.channel)) <= 0)
+                    break;
+            }
+            return position;
+        }
+
+        private void flushBuffer() throws IOException
+        {
+            this.buffer.flip();
+            this.writeFully(this.buffer);
+            this.buffer.clear();
+        }
+
+        private void writeFully(@NotNull ByteBuffer data) throws IOException
+        {
+            while (data.hasRemaining())
+                this.channel.write(data);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (this.closed)
+                return;
+            this.closed = true;
+
+            try {
+                this.flushBuffer();
+                this.channel.close();
+                if (this.id == 0L) {
+                    move(this.temp, this.file);
+                } else {
+                    synchronized (getLock(this.file)) {
+                        try {
+                            // Unless a newer write of the file was queued while this one was open.
+                            Long last = latest.get(this.file);
+                            if (last != null && last == this.id)
+                                move(this.temp, this.file);
+                            else
+                                Files.deleteIfExists(this.temp);
+                        } finally {
+                            latest.remove(this.file, this.id);
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                this.delete();
+                throw e;
+            }
+
+            if (this.path != null && indexed)
+                index.add(this.path);
+        }
+
+        @Override
+        public void discard()
+        {
+            if (this.closed)
+                return;
+            this.closed = true;
+            this.delete();
+            if (this.id != 0L)
+                latest.remove(this.file, this.id);
+        }
+
+        private void delete()
+        {
+            try {
+                this.channel.close();
+            } catch (IOException ignored) {
+            }
+            try {
+                Files.deleteIfExists(this.temp);
+            } catch (IOException ignored) {
+            }
         }
     }
 }
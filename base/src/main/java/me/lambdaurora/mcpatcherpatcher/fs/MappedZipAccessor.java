@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fs;
+
+import me.lambdaurora.mcpatcherpatcher.ResourceType;
+import org.aperlambda.lambdacommon.Identifier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.stream.Stream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Represents the memory-mapped ZIP resource input accessor.
+ * <p>
+ * The whole file is mapped once and the central directory is parsed without {@link java.util.zip.ZipFile}.
+ * Stored entries are exposed as slices of the mapping without any copy, deflated entries are inflated
+ * straight from the mapped region.
+ * <p>
+ * This is read-only and safe to use from several threads. The mapping is released by the garbage collector
+ * after {@link #close()}, not by the call itself.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class MappedZipAccessor implements CloseableResourceAccessor
+{
+    private static final int INFLATER_BUFFER_SIZE = 8192;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final ZipCentralDirectory centralDirectory;
+    private final ResourceIndex index = new ResourceIndex();
+
+    public MappedZipAccessor(@NotNull File file) throws IOException
+    {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (this.channel.size() > Integer.MAX_VALUE)
+                throw new ZipException(file + " is too large to be mapped.");
+            this.map = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.size());
+            this.centralDirectory = ZipCentralDirectory.read(this.channel);
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+
+        for (ZipCentralDirectory.Entry entry : this.centralDirectory.getEntries()) {
+            if (!entry.isDirectory())
+                this.index.add(entry.name);
+        }
+    }
+
+    @Override
+    public boolean has(@NotNull ResourceType type, @NotNull Identifier identifier)
+    {
+        return this.index.has(type, identifier);
+    }
+
+    @Override
+    public @NotNull Stream<Identifier> searchIn(@NotNull ResourceType type, @NotNull Identifier parent)
+    {
+        return this.index.searchIn(type, parent);
+    }
+
+    @Override
+    public @NotNull Collection<String> getNamespaces(@NotNull ResourceType type)
+    {
+        return this.index.getNamespaces(type);
+    }
+
+    /**
+     * Returns the content of a stored entry as a read-only slice of the mapping.
+     *
+     * @param path The path of the entry.
+     * @return The content of the entry, or null if the entry does not exist or is compressed.
+     */
+    public @Nullable ByteBuffer getBuffer(@NotNull String path)
+    {
+        ZipCentralDirectory.Entry entry = this.getReadableEntry(path);
+        if (entry == null || entry.method != RawEntry.STORED)
+            return null;
+        try {
+            return this.getData(entry);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public @Nullable InputStream getInputStream(@NotNull String path)
+    {
+        ZipCentralDirectory.Entry entry = this.getReadableEntry(path);
+        if (entry == null)
+            return null;
+        try {
+            ByteBuffer data = this.getData(entry);
+            if (entry.method == RawEntry.STORED)
+                return new ByteBufferInputStream(data);
+            return new MappedInflaterInputStream(data);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public @Nullable RawEntry getRawEntry(@NotNull String path)
+    {
+        ZipCentralDirectory.Entry entry = this.getReadableEntry(path);
+        if (entry == null)
+            return null;
+        try {
+            ByteBuffer data = this.getData(entry);
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            return new RawEntry(entry.method, entry.crc, entry.size, bytes);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private @Nullable ZipCentralDirectory.Entry getReadableEntry(@NotNull String path)
+    {
+        ZipCentralDirectory.Entry entry = this.centralDirectory.get(path);
+        if (entry == null || entry.isDirectory() || entry.isEncrypted()
+                || (entry.method != RawEntry.STORED && entry.method != RawEntry.DEFLATED))
+            return null;
+        return entry;
+    }
+
+    /**
+     * Returns the compressed data of an entry as a read-only slice of the mapping.
+     *
+     * @param entry The entry.
+     * @return The compressed data.
+     * @throws ZipException If the entry does not fit in the file.
+     */
+    private @NotNull ByteBuffer getData(@NotNull ZipCentralDirectory.Entry entry) throws ZipException
+    {
+        long limit = this.map.capacity();
+        if (entry.localHeaderOffset + 30 > limit)
+            throw new ZipException("Invalid local header offset for " + entry.name + ".");
+        long offset = entry.getDataOffset(this.slice(entry.localHeaderOffset, 30));
+        if (offset + entry.compressedSize > limit)
+            throw new ZipException("Entry " + entry.name + " exceeds the ZIP file.");
+        return this.slice(offset, (int) entry.compressedSize);
+    }
+
+    private @NotNull ByteBuffer slice(long offset, int length)
+    {
+        // Duplicates are independent views, which keeps concurrent reads safe.
+        ByteBuffer buffer = this.map.duplicate();
+        buffer.position((int) offset);
+        buffer.limit((int) offset + length);
+        return buffer.slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public boolean put(@NotNull String path, @NotNull byte[] out)
+    {
+        // Not supported.
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.channel.close();
+    }
+
+    /**
+     * Represents an input stream reading a byte buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream
+    {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(@NotNull ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(@NotNull byte[] b, int off, int len)
+        {
+            if (len == 0)
+                return 0;
+            if (!this.buffer.hasRemaining())
+                return -1;
+            int read = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n)
+        {
+            int skipped = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+            this.buffer.position(this.buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available()
+        {
+            return this.buffer.remaining();
+        }
+    }
+
+    /**
+     * Represents an input stream inflating a mapped deflated entry, the inflater is released when the stream is closed.
+     */
+    private static class MappedInflaterInputStream extends InflaterInputStream
+    {
+        private boolean eof = false;
+        private boolean closed = false;
+
+        private MappedInflaterInputStream(@NotNull ByteBuffer data)
+        {
+            super(new ByteBufferInputStream(data), new Inflater(true), INFLATER_BUFFER_SIZE);
+        }
+
+        @Override
+        protected void fill() throws IOException
+        {
+            if (this.eof)
+                throw new EOFException("Unexpected end of deflated entry.");
+            this.len = this.in.read(this.buf, 0, this.buf.length);
+            if (this.len == -1) {
+                this.eof = true;
+                // Raw deflate streams may need one extra byte past the compressed data to finish.
+                this.buf[0] = 0;
+                this.len = 1;
+            }
+            this.inf.setInput(this.buf, 0, this.len);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (!this.closed) {
+                this.closed = true;
+                this.inf.end();
+                super.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fs;
+
+import me.lambdaurora.mcpatcherpatcher.ResourceType;
+import org.aperlambda.lambdacommon.Identifier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Represents a view of another resource accessor which counts the entries scanned and the bytes going through it.
+ * <p>
+ * Counters are safe to update from several threads.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class MeteredResourceAccessor implements ResourceAccessor
+{
+    private final ResourceAccessor delegate;
+    private final LongAdder entriesScanned = new LongAdder();
+    private final LongAdder entriesRead = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder entriesWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    public MeteredResourceAccessor(@NotNull ResourceAccessor delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean has(@NotNull ResourceType type, @NotNull Identifier identifier)
+    {
+        return this.delegate.has(type, identifier);
+    }
+
+    @Override
+    public @NotNull Stream<Identifier> searchIn(@NotNull ResourceType type, @NotNull Identifier parent)
+    {
+        return this.delegate.searchIn(type, parent).peek(identifier -> this.entriesScanned.increment());
+    }
+
+    @Override
+    public @Nullable InputStream getInputStream(@NotNull ResourceType type, @NotNull Identifier identifier)
+    {
+        return this.meter(this.delegate.getInputStream(type, identifier));
+    }
+
+    @Override
+    public @Nullable InputStream getInputStream(@NotNull String path)
+    {
+        return this.meter(this.delegate.getInputStream(path));
+    }
+
+    private @Nullable InputStream meter(@Nullable InputStream inputStream)
+    {
+        if (inputStream == null)
+            return null;
+        this.entriesRead.increment();
+        return new CountingInputStream(inputStream);
+    }
+
+    @Override
+    public @Nullable RawEntry getRawEntry(@NotNull String path)
+    {
+        RawEntry entry = this.delegate.getRawEntry(path);
+        if (entry != null) {
+            this.entriesRead.increment();
+            this.bytesRead.add(entry.getData().length);
+        }
+        return entry;
+    }
+
+    @Override
+    public @NotNull Collection<String> getNamespaces(@NotNull ResourceType type)
+    {
+        return this.delegate.getNamespaces(type);
+    }
+
+    @Override
+    public boolean put(@NotNull ResourceType type, @NotNull Identifier identifier, @NotNull byte[] out)
+    {
+        return this.written(this.delegate.put(type, identifier, out), out.length);
+    }
+
+    @Override
+    public boolean put(@NotNull String path, @NotNull byte[] out)
+    {
+        return this.written(this.delegate.put(path, out), out.length);
+    }
+
+    @Override
+    public @NotNull ResourceOutputStream openOutput(@NotNull ResourceType type, @NotNull Identifier identifier) throws IOException
+    {
+        return new CountingOutputStream(this.delegate.openOutput(type, identifier));
+    }
+
+    @Override
+    public @NotNull ResourceOutputStream openOutput(@NotNull String path) throws IOException
+    {
+        return new CountingOutputStream(this.delegate.openOutput(path));
+    }
+
+    /**
+     * Transfers the specified resource with the transfer of the delegate, and counts the bytes moved.
+     *
+     * @param outAccessor The output resource accessor.
+     * @param type The resource type.
+     * @param from The identifier of the resource in this accessor.
+     * @param to The identifier of the resource in the output accessor.
+     * @return True if the resource has been transferred, else false.
+     */
+    @Override
+    public boolean transfer(@NotNull ResourceAccessor outAccessor, @NotNull ResourceType type, @NotNull Identifier from, @NotNull Identifier to)
+    {
+        MeteredResourceAccessor moved = new MeteredResourceAccessor(outAccessor);
+        return this.transferred(this.delegate.transfer(moved, type, from, to), moved);
+    }
+
+    @Override
+    public boolean transfer(@NotNull ResourceAccessor outAccessor, @NotNull String from, @NotNull String to)
+    {
+        MeteredResourceAccessor moved = new MeteredResourceAccessor(outAccessor);
+        return this.transferred(this.delegate.transfer(moved, from, to), moved);
+    }
+
+    private boolean transferred(boolean success, @NotNull MeteredResourceAccessor moved)
+    {
+        if (success) {
+            this.entriesRead.increment();
+            this.bytesRead.add(moved.getBytesWritten());
+        }
+        return success;
+    }
+
+    @Override
+    public boolean canPutRaw()
+    {
+        return this.delegate.canPutRaw();
+    }
+
+    @Override
+    public boolean putRaw(@NotNull String path, @NotNull RawEntry entry)
+    {
+        return this.written(this.delegate.putRaw(path, entry), entry.getData().length);
+    }
+
+    private boolean written(boolean success, long length)
+    {
+        if (success) {
+            this.entriesWritten.increment();
+            this.bytesWritten.add(length);
+        }
+        return success;
+    }
+
+    /**
+     * Resets the counters of this accessor.
+     */
+    public void reset()
+    {
+        this.entriesScanned.reset();
+        this.entriesRead.reset();
+        this.bytesRead.reset();
+        this.entriesWritten.reset();
+        this.bytesWritten.reset();
+    }
+
+    /**
+     * Returns the number of entries returned by {@link #searchIn(ResourceType, Identifier)}.
+     *
+     * @return The number of scanned entries.
+     */
+    public long getEntriesScanned()
+    {
+        return this.entriesScanned.sum();
+    }
+
+    public long getEntriesRead()
+    {
+        return this.entriesRead.sum();
+    }
+
+    /**
+     * Returns the number of bytes read, raw entries are counted with their compressed size.
+     *
+     * @return The number of bytes read.
+     */
+    public long getBytesRead()
+    {
+        return this.bytesRead.sum();
+    }
+
+    public long getEntriesWritten()
+    {
+        return this.entriesWritten.sum();
+    }
+
+    /**
+     * Returns the number of bytes written, raw entries are counted with their compressed size.
+     *
+     * @return The number of bytes written.
+     */
+    public long getBytesWritten()
+    {
+        return this.bytesWritten.sum();
+    }
+
+    private class CountingInputStream extends FilterInputStream
+    {
+        private CountingInputStream(@NotNull InputStream in)
+        {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+            if (b != -1)
+                bytesRead.increment();
+            return b;
+        }
+
+        @Override
+        public int read(@NotNull byte[] b, int off, int len) throws IOException
+        {
+            int read = super.read(b, off, len);
+            if (read > 0)
+                bytesRead.add(read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            long skipped = super.skip(n);
+            bytesRead.add(skipped);
+            return skipped;
+        }
+    }
+
+    /**
+     * Counts the bytes written to a resource, the resource is counted as written once closed.
+     */
+    private class CountingOutputStream extends ResourceOutputStream
+    {
+        private final ResourceOutputStream out;
+        private long count = 0L;
+        private boolean closed = false;
+
+        private CountingOutputStream(@NotNull ResourceOutputStream out)
+        {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(@NotNull byte[] b, int off, int len) throws IOException
+        {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+
+        @Override
+        public long transferFrom(@NotNull FileChannel source) throws IOException
+        {
+            long transferred = this.out.transferFrom(source);
+            this.count += transferred;
+            return transferred;
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (this.closed)
+                return;
+            this.closed = true;
+            this.out.close();
+            written(true, this.count);
+        }
+
+        @Override
+        public void discard()
+        {
+            this.closed = true;
+            this.out.discard();
+        }
+    }
+}
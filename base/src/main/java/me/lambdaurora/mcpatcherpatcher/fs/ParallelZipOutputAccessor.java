@@ -0,0 +1,450 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fs;
+
+import me.lambdaurora.mcpatcherpatcher.ResourceType;
+import org.aperlambda.lambdacommon.Identifier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Represents a ZIP resource output accessor which compresses entries in parallel.
+ * <p>
+ * Entries are deflated on a pool of workers, then a single writer thread appends them to the archive
+ * in submission order with their precomputed CRC and sizes. Entries which do not shrink when deflated are stored.
+ * <p>
+ * This accessor is thread-safe, the archive is complete once {@link #close()} returns.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ParallelZipOutputAccessor implements CloseableResourceAccessor
+{
+    private static final Future<ZipRecord> END = CompletableFuture.completedFuture(null);
+
+    private final ResourceIndex resources = new ResourceIndex();
+    private final Set<String> paths = ConcurrentHashMap.newKeySet();
+    private final ExecutorService compressors;
+    private final BlockingQueue<Future<ZipRecord>> queue;
+    private final Thread writerThread;
+    private final ZipWriter writer;
+    private final int level;
+    private volatile boolean closed = false;
+    private volatile IOException failure;
+
+    public ParallelZipOutputAccessor(@NotNull File file) throws IOException
+    {
+        this(file, Runtime.getRuntime().availableProcessors(), Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a new parallel ZIP output accessor.
+     *
+     * @param file The output file.
+     * @param threads The number of compression threads.
+     * @param level The deflate level.
+     * @throws IOException If the output file could not be opened.
+     */
+    public ParallelZipOutputAccessor(@NotNull File file, int threads, int level) throws IOException
+    {
+        this.writer = new ZipWriter(new BufferedOutputStream(new FileOutputStream(file), 65536));
+        this.level = level;
+        // The compressors are owned by this accessor: callers blocked on a full queue must never starve them.
+        this.compressors = Executors.newFixedThreadPool(threads, new DaemonFactory("MCPatcherPatcher Zip Compressor"));
+        this.queue = new ArrayBlockingQueue<>(threads * 4);
+        this.writerThread = new Thread(this::writeLoop, "MCPatcherPatcher Zip Writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public boolean has(@NotNull ResourceType type, @NotNull Identifier identifier)
+    {
+        return false;
+    }
+
+    @Override
+    public @NotNull Stream<Identifier> searchIn(@NotNull ResourceType type, @NotNull Identifier parent)
+    {
+        return Stream.<Identifier>builder().build();
+    }
+
+    @Override
+    public @Nullable InputStream getInputStream(@NotNull String path)
+    {
+        return null;
+    }
+
+    @Override
+    public @NotNull Collection<String> getNamespaces(@NotNull ResourceType type)
+    {
+        return this.resources.getNamespaces(type);
+    }
+
+    @Override
+    public boolean put(@NotNull String path, @NotNull byte[] out)
+    {
+        if (this.closed || this.failure != null || !this.paths.add(path))
+            return false;
+
+        // The entry is compressed later, keep a copy so the caller may reuse its array.
+        byte[] data = out.clone();
+        if (!this.enqueue(CompletableFuture.supplyAsync(() -> this.compress(path, data), this.compressors)))
+            return false;
+        this.resources.add(path);
+        return true;
+    }
+
+    @Override
+    public boolean canPutRaw()
+    {
+        return true;
+    }
+
+    @Override
+    public boolean putRaw(@NotNull String path, @NotNull RawEntry entry)
+    {
+        if ((entry.getMethod() != RawEntry.STORED && entry.getMethod() != RawEntry.DEFLATED)
+                || this.closed || this.failure != null || !this.paths.add(path))
+            return false;
+
+        ZipRecord record = new ZipRecord(path, entry.getMethod(), entry.getCrc(), entry.getSize(), entry.getData(), entry.getData().length);
+        if (!this.enqueue(CompletableFuture.completedFuture(record)))
+            return false;
+        this.resources.add(path);
+        return true;
+    }
+
+    /**
+     * Enqueues an entry for the writer thread.
+     * <p>
+     * The queue is ordered and bounded, so callers wait when the writer falls behind.
+     *
+     * @param record The future record.
+     * @return True if the record has been enqueued, else false.
+     */
+    protected synchronized boolean enqueue(@NotNull Future<ZipRecord> record)
+    {
+        if (this.closed)
+            return false;
+        try {
+            this.queue.put(record);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private @NotNull ZipRecord compress(@NotNull String path, @NotNull byte[] data)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+
+        Deflater deflater = new Deflater(this.level, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, data.length + (data.length >> 12) + (data.length >> 14) + 13)];
+            int length = 0;
+            while (!deflater.finished() && length < buffer.length) {
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+
+            // Already compressed data (like PNG textures) does not shrink: store it instead.
+            if (!deflater.finished() || length >= data.length)
+                return new ZipRecord(path, RawEntry.STORED, crc.getValue(), data.length, data, data.length);
+            return new ZipRecord(path, RawEntry.DEFLATED, crc.getValue(), data.length, buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeLoop()
+    {
+        try {
+            Future<ZipRecord> next;
+            while ((next = this.queue.take()) != END) {
+                ZipRecord record;
+                try {
+                    record = next.get();
+                } catch (ExecutionException e) {
+                    this.fail(new IOException("Could not compress entry.", e.getCause()));
+                    continue;
+                }
+                if (this.failure == null) {
+                    try {
+                        this.writer.write(record);
+                    } catch (IOException e) {
+                        this.fail(e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            this.fail(new InterruptedIOException("ZIP writer interrupted."));
+        }
+    }
+
+    private void fail(@NotNull IOException e)
+    {
+        if (this.failure == null)
+            this.failure = e;
+    }
+
+    /**
+     * Waits for every pending entry, then writes the central directory and closes the file.
+     *
+     * @throws IOException If any entry or the archive could not be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        synchronized (this) {
+            if (this.closed)
+                return;
+            this.closed = true;
+        }
+
+        try {
+            this.queue.put(END);
+            this.writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.fail(new InterruptedIOException("Interrupted while closing the ZIP file."));
+        } finally {
+            this.compressors.shutdownNow();
+        }
+
+        try {
+            if (this.failure == null)
+                this.writer.finish();
+        } finally {
+            this.writer.close();
+        }
+
+        if (this.failure != null)
+            throw this.failure;
+    }
+
+    /**
+     * Represents an entry ready to be written: its data is already compressed according to its method.
+     */
+    static class ZipRecord
+    {
+        final byte[] name;
+        final int method;
+        final long crc;
+        final long size;
+        final byte[] data;
+        final int length;
+
+        ZipRecord(@NotNull String name, int method, long crc, long size, @NotNull byte[] data, int length)
+        {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Represents a sequential writer of ZIP archives for entries with known CRC and sizes.
+     * <p>
+     * ZIP64 records are written when the archive has too many entries or becomes too large for the classic format.
+     */
+    static class ZipWriter
+    {
+        private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+        private final OutputStream out;
+        private final ByteArrayOutputStream central = new ByteArrayOutputStream();
+        private final byte[] header = new byte[64];
+        private final int time;
+        private final int date;
+        private long offset = 0L;
+        private long entries = 0L;
+
+        ZipWriter(@NotNull OutputStream out)
+        {
+            this.out = out;
+            Calendar calendar = Calendar.getInstance();
+            this.time = (calendar.get(Calendar.HOUR_OF_DAY) << 11) | (calendar.get(Calendar.MINUTE) << 5) | (calendar.get(Calendar.SECOND) >> 1);
+            this.date = ((calendar.get(Calendar.YEAR) - 1980) << 9) | ((calendar.get(Calendar.MONTH) + 1) << 5) | calendar.get(Calendar.DAY_OF_MONTH);
+        }
+
+        void write(@NotNull ZipRecord record) throws IOException
+        {
+            long localOffset = this.offset;
+            int version = record.method == RawEntry.DEFLATED ? 20 : 10;
+
+            // Local file header.
+            int i = 0;
+            i = putInt(this.header, i, 0x04034b50);
+            i = putShort(this.header, i, version);
+            i = putShort(this.header, i, 0x0800); // UTF-8 names.
+            i = putShort(this.header, i, record.method);
+            i = putShort(this.header, i, this.time);
+            i = putShort(this.header, i, this.date);
+            i = putInt(this.header, i, record.crc);
+            i = putInt(this.header, i, record.length);
+            i = putInt(this.header, i, record.size);
+            i = putShort(this.header, i, record.name.length);
+            i = putShort(this.header, i, 0);
+            this.out.write(this.header, 0, i);
+            this.out.write(record.name);
+            this.out.write(record.data, 0, record.length);
+            this.offset += i + record.name.length + record.length;
+
+            // Central directory header.
+            boolean zip64 = localOffset >= ZIP64_MAGIC;
+            i = 0;
+            i = putInt(this.header, i, 0x02014b50);
+            i = putShort(this.header, i, zip64 ? 45 : 20);
+            i = putShort(this.header, i, zip64 ? 45 : version);
+            i = putShort(this.header, i, 0x0800);
+            i = putShort(this.header, i, record.method);
+            i = putShort(this.header, i, this.time);
+            i = putShort(this.header, i, this.date);
+            i = putInt(this.header, i, record.crc);
+            i = putInt(this.header, i, record.length);
+            i = putInt(this.header, i, record.size);
+            i = putShort(this.header, i, record.name.length);
+            i = putShort(this.header, i, zip64 ? 12 : 0);
+            i = putShort(this.header, i, 0); // Comment.
+            i = putShort(this.header, i, 0); // Disk.
+            i = putShort(this.header, i, 0); // Internal attributes.
+            i = putInt(this.header, i, 0); // External attributes.
+            i = putInt(this.header, i, zip64 ? ZIP64_MAGIC : localOffset);
+            this.central.write(this.header, 0, i);
+            this.central.write(record.name);
+            if (zip64) {
+                i = 0;
+                i = putShort(this.header, i, 0x0001);
+                i = putShort(this.header, i, 8);
+                i = putLong(this.header, i, localOffset);
+                this.central.write(this.header, 0, i);
+            }
+
+            this.entries++;
+        }
+
+        void finish() throws IOException
+        {
+            long centralOffset = this.offset;
+            this.central.writeTo(this.out);
+            long centralSize = this.central.size();
+            this.offset += centralSize;
+
+            boolean zip64 = this.entries >= 0xFFFF || centralOffset >= ZIP64_MAGIC || centralSize >= ZIP64_MAGIC;
+            int i;
+            if (zip64) {
+                long recordOffset = this.offset;
+                // ZIP64 end of central directory record.
+                i = 0;
+                i = putInt(this.header, i, 0x06064b50);
+                i = putLong(this.header, i, 44);
+                i = putShort(this.header, i, 45);
+                i = putShort(this.header, i, 45);
+                i = putInt(this.header, i, 0);
+                i = putInt(this.header, i, 0);
+                i = putLong(this.header, i, this.entries);
+                i = putLong(this.header, i, this.entries);
+                i = putLong(this.header, i, centralSize);
+                i = putLong(this.header, i, centralOffset);
+                this.out.write(this.header, 0, i);
+                // ZIP64 end of central directory locator.
+                i = 0;
+                i = putInt(this.header, i, 0x07064b50);
+                i = putInt(this.header, i, 0);
+                i = putLong(this.header, i, recordOffset);
+                i = putInt(this.header, i, 1);
+                this.out.write(this.header, 0, i);
+            }
+
+            // End of central directory record.
+            i = 0;
+            i = putInt(this.header, i, 0x06054b50);
+            i = putShort(this.header, i, 0);
+            i = putShort(this.header, i, 0);
+            i = putShort(this.header, i, (int) Math.min(this.entries, 0xFFFF));
+            i = putShort(this.header, i, (int) Math.min(this.entries, 0xFFFF));
+            i = putInt(this.header, i, Math.min(centralSize, ZIP64_MAGIC));
+            i = putInt(this.header, i, Math.min(centralOffset, ZIP64_MAGIC));
+            i = putShort(this.header, i, 0);
+            this.out.write(this.header, 0, i);
+            this.out.flush();
+        }
+
+        void close() throws IOException
+        {
+            this.out.close();
+        }
+
+        private static int putShort(byte[] buffer, int offset, int value)
+        {
+            buffer[offset] = (byte) value;
+            buffer[offset + 1] = (byte) (value >>> 8);
+            return offset + 2;
+        }
+
+        private static int putInt(byte[] buffer, int offset, long value)
+        {
+            putShort(buffer, offset, (int) value);
+            putShort(buffer, offset + 2, (int) (value >>> 16));
+            return offset + 4;
+        }
+
+        private static int putLong(byte[] buffer, int offset, long value)
+        {
+            putInt(buffer, offset, value);
+            putInt(buffer, offset + 4, value >>> 32);
+            return offset + 8;
+        }
+    }
+
+    static class DaemonFactory implements ThreadFactory
+    {
+        private final AtomicInteger count = new AtomicInteger();
+        private final String name;
+
+        DaemonFactory(@NotNull String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@NotNull Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, this.name + " #" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
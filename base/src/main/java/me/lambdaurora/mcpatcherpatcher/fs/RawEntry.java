@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fs;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents the still compressed data of a ZIP entry.
+ * <p>
+ * Raw entries allow to copy resources between ZIP files without inflating and deflating them again.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class RawEntry
+{
+    public static final int STORED = 0;
+    public static final int DEFLATED = 8;
+
+    private final int method;
+    private final long crc;
+    private final long size;
+    private final byte[] data;
+
+    /**
+     * Creates a new raw entry.
+     *
+     * @param method The compression method, either {@link #STORED} or {@link #DEFLATED}.
+     * @param crc The CRC-32 of the uncompressed data.
+     * @param size The size of the uncompressed data.
+     * @param data The compressed data.
+     */
+    public RawEntry(int method, long crc, long size, @NotNull byte[] data)
+    {
+        this.method = method;
+        this.crc = crc;
+        this.size = size;
+        this.data = data;
+    }
+
+    public int getMethod()
+    {
+        return this.method;
+    }
+
+    /**
+     * Returns the CRC-32 of the uncompressed data.
+     *
+     * @return The CRC-32.
+     */
+    public long getCrc()
+    {
+        return this.crc;
+    }
+
+    /**
+     * Returns the size of the uncompressed data.
+     *
+     * @return The uncompressed size.
+     */
+    public long getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * Returns the compressed data.
+     *
+     * @return The compressed data.
+     */
+    public @NotNull byte[] getData()
+    {
+        return this.data;
+    }
+}
@@ -22,7 +22,6 @@ import org.aperlambda.lambdacommon.Identifier;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -113,6 +112,146 @@ public interface ResourceAccessor
      */
     boolean put(@NotNull String path, @NotNull byte[] out);
 
+    /**
+     * Opens an output stream to the specified resource, the resource is put once the stream is closed.
+     *
+     * @param type The resource type.
+     * @param identifier The resource identifier.
+     * @return The output stream.
+     * @throws IOException If the resource could not be opened.
+     * @see #openOutput(String)
+     */
+    default @NotNull ResourceOutputStream openOutput(@NotNull ResourceType type, @NotNull Identifier identifier) throws IOException
+    {
+        return this.openOutput(asPath(type, identifier));
+    }
+
+    /**
+     * Opens an output stream to the specified resource, the resource is put once the stream is closed.
+     * <p>
+     * The default implementation buffers the resource in memory, then puts it with {@link #put(String, byte[])}.
+     * Accessors which can write a resource while it is produced override it.
+     *
+     * @param path The resource path.
+     * @return The output stream.
+     * @throws IOException If the resource could not be opened.
+     * @see #openOutput(ResourceType, Identifier)
+     */
+    default @NotNull ResourceOutputStream openOutput(@NotNull String path) throws IOException
+    {
+        return new BufferedResourceOutputStream(this, path);
+    }
+
+    /**
+     * Returns the still compressed data of the specified resource.
+     * <p>
+     * Only accessors backed by a ZIP file can provide raw entries.
+     *
+     * @param path The path to the resource.
+     * @return The raw entry if the resource exists and is stored in a ZIP file, else null.
+     */
+    default @Nullable RawEntry getRawEntry(@NotNull String path)
+    {
+        return null;
+    }
+
+    /**
+     * Returns whether this accessor can write raw entries or not.
+     *
+     * @return True if raw entries can be written, else false.
+     * @see #putRaw(String, RawEntry)
+     */
+    default boolean canPutRaw()
+    {
+        return false;
+    }
+
+    /**
+     * Puts the still compressed data in the specified resource.
+     *
+     * @param path The resource path.
+     * @param entry The raw entry.
+     * @return True if the raw entry has been successfully put, else false.
+     * @see #canPutRaw()
+     */
+    default boolean putRaw(@NotNull String path, @NotNull RawEntry entry)
+    {
+        return false;
+    }
+
+    /**
+     * Copies the resource at the specified path to the specified accessor without decompressing it, if both accessors support it.
+     *
+     * @param outAccessor The output resource accessor.
+     * @param from The path of the resource in this accessor.
+     * @param to The path of the resource in the output accessor.
+     * @return True if the resource has been copied, else false.
+     */
+    default boolean copyRaw(@NotNull ResourceAccessor outAccessor, @NotNull String from, @NotNull String to)
+    {
+        if (!outAccessor.canPutRaw())
+            return false;
+        RawEntry entry = this.getRawEntry(from);
+        return entry != null && outAccessor.putRaw(to, entry);
+    }
+
+    /**
+     * Transfers the specified resource to the specified accessor.
+     * <p>
+     * The resource is copied without being decompressed if both accessors support it,
+     * else it goes through a fixed-size buffer into {@link #openOutput(ResourceType, Identifier)} of the output accessor.
+     *
+     * @param outAccessor The output resource accessor.
+     * @param type The resource type.
+     * @param from The identifier of the resource in this accessor.
+     * @param to The identifier of the resource in the output accessor.
+     * @return True if the resource has been transferred, else false.
+     * @see #transfer(ResourceAccessor, String, String)
+     */
+    default boolean transfer(@NotNull ResourceAccessor outAccessor, @NotNull ResourceType type, @NotNull Identifier from, @NotNull Identifier to)
+    {
+        if (this.copyRaw(outAccessor, asPath(type, from), asPath(type, to)))
+            return true;
+        InputStream in = this.getInputStream(type, from);
+        if (in == null)
+            return false;
+
+        try (InputStream input = in) {
+            write(input, outAccessor.openOutput(type, to));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Transfers the resource at the specified path to the specified accessor.
+     * <p>
+     * The resource is copied without being decompressed if both accessors support it,
+     * else it goes through a fixed-size buffer into {@link #openOutput(String)} of the output accessor.
+     *
+     * @param outAccessor The output resource accessor.
+     * @param from The path of the resource in this accessor.
+     * @param to The path of the resource in the output accessor.
+     * @return True if the resource has been transferred, else false.
+     * @see #transfer(ResourceAccessor, ResourceType, Identifier, Identifier)
+     */
+    default boolean transfer(@NotNull ResourceAccessor outAccessor, @NotNull String from, @NotNull String to)
+    {
+        if (this.copyRaw(outAccessor, from, to))
+            return true;
+        InputStream in = this.getInputStream(from);
+        if (in == null)
+            return false;
+
+        try (InputStream input = in) {
+            write(input, outAccessor.openOutput(to));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     /**
      * Copies the resource from this accessor to the specified accessor.
      *
@@ -123,18 +262,7 @@ public interface ResourceAccessor
      */
     default void copy(@NotNull ResourceAccessor outAccessor, @NotNull ResourceType type, @NotNull Identifier identifier)
     {
-        InputStream in = this.getInputStream(type, identifier);
-        if (in == null) {
-            return;
-        }
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try {
-            transferTo(in, out);
-            outAccessor.put(type, identifier, out.toByteArray());
-            out.close();
-            in.close();
-        } catch (IOException e) {
-        }
+        this.transfer(outAccessor, type, identifier, identifier);
     }
 
     static long transferTo(@NotNull InputStream in, @NotNull OutputStream out) throws IOException
@@ -151,6 +279,26 @@ public interface ResourceAccessor
         return transferred;
     }
 
+    /**
+     * Writes the content of the input stream into the resource output stream, then closes the resource output stream.
+     * <p>
+     * The resource output stream is discarded if the content could not be written.
+     *
+     * @param in The input stream.
+     * @param out The resource output stream.
+     * @throws IOException If the resource could not be written.
+     */
+    static void write(@NotNull InputStream in, @NotNull ResourceOutputStream out) throws IOException
+    {
+        try {
+            transferTo(in, out);
+        } catch (IOException | RuntimeException e) {
+            out.discard();
+            throw e;
+        }
+        out.close();
+    }
+
     /**
      * Copies the resource from this accessor to the specified accessor.
      *
@@ -160,36 +308,12 @@ public interface ResourceAccessor
      */
     default void copy(@NotNull ResourceAccessor outAccessor, @NotNull String path)
     {
-        InputStream in = this.getInputStream(path);
-        if (in == null) {
-            return;
-        }
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try {
-            transferTo(in, out);
-            outAccessor.put(path, out.toByteArray());
-            out.close();
-            in.close();
-        } catch (IOException e) {
-        }
+        this.transfer(outAccessor, path, path);
     }
 
     default boolean rename(@NotNull ResourceAccessor outAccessor, @NotNull ResourceType type, @NotNull Identifier before, @NotNull Identifier after)
     {
-        InputStream in = this.getInputStream(type, before);
-        if (in == null) {
-            return false;
-        }
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try {
-            transferTo(in, out);
-            outAccessor.put(type, after, out.toByteArray());
-            out.close();
-            in.close();
-            return true;
-        } catch (IOException e) {
-            return false;
-        }
+        return this.transfer(outAccessor, type, before, after);
     }
 
     static @NotNull String asPath(@NotNull ResourceType type, @NotNull Identifier identifier)
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fs;
+
+import me.lambdaurora.mcpatcherpatcher.ResourceType;
+import org.aperlambda.lambdacommon.Identifier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Represents an in-memory index of the resources of a resource pack.
+ * <p>
+ * Resources are grouped by resource type and namespace, and each namespace keeps its paths sorted
+ * so prefix searches only visit the matching range.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ResourceIndex
+{
+    private final Map<ResourceType, Map<String, NavigableMap<String, Identifier>>> resources = new EnumMap<>(ResourceType.class);
+
+    public ResourceIndex()
+    {
+        for (ResourceType type : ResourceType.values()) {
+            this.resources.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Adds the resource at the specified path to the index.
+     *
+     * @param path The path of the resource, relative to the root of the resource pack.
+     * @return True if the path points to a resource and has been indexed, else false.
+     */
+    public boolean add(@NotNull String path)
+    {
+        ResourceType type = getType(path);
+        if (type == null || path.endsWith("/.DS_Store") /* Come on, don't include this in your resource packs >:( */)
+            return false;
+
+        String name = path.substring(type.getName().length() + 1);
+        int first = name.indexOf('/');
+        if (first == name.length() - 1 || first <= 0 || name.endsWith("/"))
+            return false;
+
+        String namespace = name.substring(0, first);
+        String resource = name.substring(first + 1);
+        this.resources.get(type).computeIfAbsent(namespace, k -> new ConcurrentSkipListMap<>())
+                .put(resource, new Identifier(namespace, resource));
+        return true;
+    }
+
+    /**
+     * Removes the specified resource from the index.
+     *
+     * @param type The resource type.
+     * @param identifier The resource identifier.
+     * @return True if the resource was indexed, else false.
+     */
+    public boolean remove(@NotNull ResourceType type, @NotNull Identifier identifier)
+    {
+        NavigableMap<String, Identifier> namespace = this.resources.get(type).get(identifier.getNamespace());
+        if (namespace == null || namespace.remove(identifier.getName()) == null)
+            return false;
+        if (namespace.isEmpty())
+            this.resources.get(type).remove(identifier.getNamespace(), namespace);
+        return true;
+    }
+
+    /**
+     * Removes the resource at the specified path, or every resource inside the directory at the specified path.
+     *
+     * @param path The path of the resource or of the directory, relative to the root of the resource pack.
+     * @return The paths of the removed resources.
+     */
+    public @NotNull List<String> removeAll(@NotNull String path)
+    {
+        List<String> removed = new ArrayList<>();
+        for (ResourceType type : ResourceType.values()) {
+            Map<String, NavigableMap<String, Identifier>> namespaces = this.resources.get(type);
+            if (path.equals(type.getName())) {
+                new ArrayList<>(namespaces.keySet()).forEach(namespace -> this.removeAll(type, namespace, "", removed));
+            } else if (getType(path) == type) {
+                String name = path.substring(type.getName().length() + 1);
+                int first = name.indexOf('/');
+                if (first < 0)
+                    this.removeAll(type, name, "", removed);
+                else if (first > 0)
+                    this.removeAll(type, name.substring(0, first), name.substring(first + 1), removed);
+            }
+        }
+        return removed;
+    }
+
+    private void removeAll(@NotNull ResourceType type, @NotNull String namespace, @NotNull String prefix, @NotNull List<String> removed)
+    {
+        NavigableMap<String, Identifier> resources = this.resources.get(type).get(namespace);
+        if (resources == null)
+            return;
+
+        String root = type.getName() + "/" + namespace + "/";
+        if (prefix.isEmpty()) {
+            resources.keySet().forEach(resource -> removed.add(root + resource));
+            this.resources.get(type).remove(namespace, resources);
+            return;
+        }
+
+        if (resources.remove(prefix) != null)
+            removed.add(root + prefix);
+        NavigableMap<String, Identifier> children = resources.subMap(prefix + "/", true, prefix + "/" + Character.MAX_VALUE, false);
+        children.keySet().forEach(resource -> removed.add(root + resource));
+        children.clear();
+        if (resources.isEmpty())
+            this.resources.get(type).remove(namespace, resources);
+    }
+
+    /**
+     * Clears the index.
+     */
+    public void clear()
+    {
+        this.resources.values().forEach(Map::clear);
+    }
+
+    /**
+     * Returns whether the specified resource is indexed or not.
+     *
+     * @param type The resource type.
+     * @param identifier The resource identifier.
+     * @return True if the resource is indexed, else false.
+     */
+    public boolean has(@NotNull ResourceType type, @NotNull Identifier identifier)
+    {
+        NavigableMap<String, Identifier> namespace = this.resources.get(type).get(identifier.getNamespace());
+        return namespace != null && namespace.containsKey(identifier.getName());
+    }
+
+    /**
+     * Returns a stream of the indexed resources whose path starts with the path of the parent identifier.
+     *
+     * @param type The resource type.
+     * @param parent The parent resource identifier.
+     * @return The stream of identifiers, sorted by path.
+     */
+    public @NotNull Stream<Identifier> searchIn(@NotNull ResourceType type, @NotNull Identifier parent)
+    {
+        NavigableMap<String, Identifier> namespace = this.resources.get(type).get(parent.getNamespace());
+        if (namespace == null)
+            return Stream.empty();
+        String prefix = parent.getName();
+        return namespace.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values().stream();
+    }
+
+    /**
+     * Returns the namespaces which contain at least one resource of the specified type.
+     *
+     * @param type The resource type.
+     * @return The namespaces.
+     */
+    public @NotNull Collection<String> getNamespaces(@NotNull ResourceType type)
+    {
+        return new ArrayList<>(this.resources.get(type).keySet());
+    }
+
+    private static @Nullable ResourceType getType(@NotNull String path)
+    {
+        for (ResourceType type : ResourceType.values()) {
+            if (path.startsWith(type.getName()) && path.length() > type.getName().length()
+                    && path.charAt(type.getName().length()) == '/')
+                return type;
+        }
+        return null;
+    }
+}
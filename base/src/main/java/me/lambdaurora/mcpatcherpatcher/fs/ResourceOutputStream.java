@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fs;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Represents an output stream writing a resource, the resource is put once the stream is closed.
+ * <p>
+ * If writing the resource fails, the stream must be discarded with {@link #discard()} instead of being closed,
+ * so that no truncated resource is put.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ResourceAccessor#openOutput(String)
+ */
+public abstract class ResourceOutputStream extends OutputStream
+{
+    /**
+     * Closes this stream without putting the resource.
+     */
+    public abstract void discard();
+
+    /**
+     * Writes the whole content of the specified file channel.
+     * <p>
+     * By default the content goes through a fixed-size buffer, streams writing to a file may let the operating system copy it.
+     *
+     * @param source The file channel.
+     * @return The number of bytes written.
+     * @throws IOException If the content could not be written.
+     */
+    public long transferFrom(@NotNull FileChannel source) throws IOException
+    {
+        WritableByteChannel target = Channels.newChannel(this);
+        long size = source.size();
+        long position = 0L;
+        for (long transferred; position < size; position += transferred) {
+            if ((transferred = source.transferTo(position, size - position, target)) <= 0)
+                break;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fs;
+
+import me.lambdaurora.mcpatcherpatcher.ResourceType;
+import org.aperlambda.lambdacommon.Identifier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Represents a thread-safe view of another resource accessor.
+ * <p>
+ * Every call is serialized on the same lock, which allows several converters to share one output accessor.
+ * The content of the output streams is written outside of the lock, only opening them and putting their resource are serialized.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class SynchronizedResourceAccessor implements ResourceAccessor
+{
+    private final ResourceAccessor delegate;
+
+    public SynchronizedResourceAccessor(@NotNull ResourceAccessor delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized boolean has(@NotNull ResourceType type, @NotNull Identifier identifier)
+    {
+        return this.delegate.has(type, identifier);
+    }
+
+    @Override
+    public synchronized @NotNull Stream<Identifier> searchIn(@NotNull ResourceType type, @NotNull Identifier parent)
+    {
+        // Collect eagerly, the returned stream may be consumed outside of the lock.
+        List<Identifier> identifiers = this.delegate.searchIn(type, parent).collect(Collectors.toList());
+        return identifiers.stream();
+    }
+
+    @Override
+    public synchronized @Nullable InputStream getInputStream(@NotNull ResourceType type, @NotNull Identifier identifier)
+    {
+        return this.delegate.getInputStream(type, identifier);
+    }
+
+    @Override
+    public synchronized @Nullable InputStream getInputStream(@NotNull String path)
+    {
+        return this.delegate.getInputStream(path);
+    }
+
+    @Override
+    public synchronized @Nullable RawEntry getRawEntry(@NotNull String path)
+    {
+        return this.delegate.getRawEntry(path);
+    }
+
+    @Override
+    public synchronized @NotNull Collection<String> getNamespaces(@NotNull ResourceType type)
+    {
+        return new ArrayList<>(this.delegate.getNamespaces(type));
+    }
+
+    @Override
+    public synchronized boolean put(@NotNull ResourceType type, @NotNull Identifier identifier, @NotNull byte[] out)
+    {
+        return this.delegate.put(type, identifier, out);
+    }
+
+    @Override
+    public synchronized boolean put(@NotNull String path, @NotNull byte[] out)
+    {
+        return this.delegate.put(path, out);
+    }
+
+    /**
+     * Opens an output stream of the delegate accessor, so that the resource is streamed if the delegate supports it.
+     * <p>
+     * The content is written without holding the lock, closing or discarding the stream holds it.
+     *
+     * @param path The resource path.
+     * @return The output stream.
+     * @throws IOException If the resource could not be opened.
+     */
+    @Override
+    public @NotNull ResourceOutputStream openOutput(@NotNull String path) throws IOException
+    {
+        ResourceOutputStream out;
+        synchronized (this) {
+            out = this.delegate.openOutput(path);
+        }
+        return new SynchronizedOutputStream(out);
+    }
+
+    @Override
+    public boolean canPutRaw()
+    {
+        return this.delegate.canPutRaw();
+    }
+
+    @Override
+    public synchronized boolean putRaw(@NotNull String path, @NotNull RawEntry entry)
+    {
+        return this.delegate.putRaw(path, entry);
+    }
+
+    /**
+     * Represents an output stream of the delegate accessor which puts its resource while holding the lock.
+     */
+    private class SynchronizedOutputStream extends ResourceOutputStream
+    {
+        private final ResourceOutputStream out;
+
+        private SynchronizedOutputStream(@NotNull ResourceOutputStream out)
+        {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            this.out.write(b);
+        }
+
+        @Override
+        public void write(@NotNull byte[] b, int off, int len) throws IOException
+        {
+            this.out.write(b, off, len);
+        }
+
+        @Override
+        public long transferFrom(@NotNull FileChannel source) throws IOException
+        {
+            return this.out.transferFrom(source);
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            synchronized (SynchronizedResourceAccessor.this) {
+                this.out.close();
+            }
+        }
+
+        @Override
+        public void discard()
+        {
+            synchronized (SynchronizedResourceAccessor.this) {
+                this.out.discard();
+            }
+        }
+    }
+}
@@ -25,8 +25,10 @@ import org.jetbrains.annotations.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
-import java.util.stream.Collectors;
+import java.util.Enumeration;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -34,25 +36,37 @@ import java.util.zip.ZipFile;
 /**
  * Represents the ZIP resource input accessor.
  * <p>
- * This is read-only.
+ * This is read-only. The entries are indexed once when the file is opened, queries never scan the central directory again.
  *
  * @author LambdAurora
  * @version 1.0.0
  * @since 1.0.0
  */
-public class ZipAccessor implements ResourceAccessor
+public class ZipAccessor implements CloseableResourceAccessor
 {
+    private final File file;
     private final ZipFile zip;
+    private final ResourceIndex index = new ResourceIndex();
+    private FileChannel channel;
+    private ZipCentralDirectory centralDirectory;
 
     public ZipAccessor(@NotNull File file) throws IOException
     {
+        this.file = file;
         this.zip = new ZipFile(file);
+
+        Enumeration<? extends ZipEntry> entries = this.zip.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory())
+                this.index.add(entry.getName());
+        }
     }
 
     @Override
     public boolean has(@NotNull ResourceType type, @NotNull Identifier identifier)
     {
-        return this.zip.getEntry(ResourceAccessor.asPath(type, identifier)) != null;
+        return this.index.has(type, identifier);
     }
 
     @Override
@@ -68,34 +82,45 @@ public class ZipAccessor implements ResourceAccessor
         }
     }
 
+    @Override
+    public @Nullable RawEntry getRawEntry(@NotNull String path)
+    {
+        try {
+            ZipCentralDirectory.Entry entry = this.getCentralDirectory().get(path);
+            if (entry == null || entry.isDirectory() || entry.isEncrypted()
+                    || (entry.method != RawEntry.STORED && entry.method != RawEntry.DEFLATED))
+                return null;
+            return new RawEntry(entry.method, entry.crc, entry.size, entry.readRaw(this.channel));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the central directory of the ZIP file, which is only parsed on the first raw read.
+     *
+     * @return The central directory.
+     * @throws IOException If the central directory could not be read.
+     */
+    private synchronized @NotNull ZipCentralDirectory getCentralDirectory() throws IOException
+    {
+        if (this.centralDirectory == null) {
+            this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ);
+            this.centralDirectory = ZipCentralDirectory.read(this.channel);
+        }
+        return this.centralDirectory;
+    }
+
     @Override
     public @NotNull Stream<Identifier> searchIn(@NotNull ResourceType type, @NotNull Identifier parent)
     {
-        return this.zip.stream()
-                .filter(entry -> entry.getName().startsWith(type.getName() + "/")
-                        && !entry.isDirectory()
-                        && !entry.getName().endsWith("/.DS_Store") /* Come on, don't include this in your resource packs >:( */)
-                .map(entry -> {
-                    String name = entry.getName().replace(type.getName() + "/", "");
-                    int first = name.indexOf("/");
-                    if (first == name.length() - 1 || first == -1)
-                        return Identifier.IDENTIFIER_INVALID;
-                    return new Identifier(name.substring(0, first), name.substring(first + 1));
-                })
-                .filter(id -> !id.equals(Identifier.IDENTIFIER_INVALID))
-                .filter(id -> id.getNamespace().equals(parent.getNamespace()))
-                .filter(id -> id.getName().startsWith(parent.getName()));
+        return this.index.searchIn(type, parent);
     }
 
     @Override
     public @NotNull Collection<String> getNamespaces(@NotNull ResourceType type)
     {
-        return this.zip.stream().filter(entry -> entry.getName().startsWith(type.getName() + "/") && entry.isDirectory())
-                .map(entry -> entry.getName().split("/"))
-                .filter(entry -> entry.length == 2)
-                .map(entry -> entry[1])
-                .distinct()
-                .collect(Collectors.toList());
+        return this.index.getNamespaces(type);
     }
 
     @Override
@@ -104,4 +129,12 @@ public class ZipAccessor implements ResourceAccessor
         // Not supported.
         return false;
     }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (this.channel != null)
+            this.channel.close();
+        this.zip.close();
+    }
 }
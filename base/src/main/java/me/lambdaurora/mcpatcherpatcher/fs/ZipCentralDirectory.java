@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fs;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/**
+ * Represents the central directory of a ZIP file, parsed without going through {@link java.util.zip.ZipFile}.
+ * <p>
+ * Unlike {@link java.util.zip.ZipEntry}, the parsed entries expose the offset of their local header,
+ * which allows to read their compressed data directly.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class ZipCentralDirectory
+{
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int END_SIZE = 22;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private final Map<String, Entry> entries;
+
+    private ZipCentralDirectory(@NotNull Map<String, Entry> entries)
+    {
+        this.entries = entries;
+    }
+
+    public @Nullable Entry get(@NotNull String name)
+    {
+        return this.entries.get(name);
+    }
+
+    public @NotNull Collection<Entry> getEntries()
+    {
+        return this.entries.values();
+    }
+
+    /**
+     * Reads the central directory of the specified ZIP file.
+     *
+     * @param channel The channel of the ZIP file.
+     * @return The central directory.
+     * @throws IOException If the file could not be read or is not a valid ZIP file.
+     */
+    public static @NotNull ZipCentralDirectory read(@NotNull FileChannel channel) throws IOException
+    {
+        long fileSize = channel.size();
+        int tailSize = (int) Math.min(fileSize, END_SIZE + 0xFFFF);
+        ByteBuffer tail = readFully(channel, fileSize - tailSize, tailSize);
+
+        int end = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+        if (end == -1)
+            throw new ZipException("Missing end of central directory record.");
+
+        long count = tail.getShort(end + 10) & 0xFFFF;
+        long centralSize = tail.getInt(end + 12) & ZIP64_MAGIC;
+        long centralOffset = tail.getInt(end + 16) & ZIP64_MAGIC;
+
+        long endPosition = fileSize - tailSize + end;
+        if (endPosition >= 20) {
+            ByteBuffer locator = readFully(channel, endPosition - 20, 20);
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                ByteBuffer record = readFully(channel, locator.getLong(8), 56);
+                if (record.getInt(0) != ZIP64_END_SIGNATURE)
+                    throw new ZipException("Invalid ZIP64 end of central directory record.");
+                count = record.getLong(32);
+                centralSize = record.getLong(40);
+                centralOffset = record.getLong(48);
+            }
+        }
+
+        if (centralSize > Integer.MAX_VALUE || centralOffset + centralSize > fileSize)
+            throw new ZipException("Invalid central directory.");
+
+        ByteBuffer central = readFully(channel, centralOffset, (int) centralSize);
+        Map<String, Entry> entries = new LinkedHashMap<>((int) Math.min(count * 2, Integer.MAX_VALUE / 2));
+        int position = 0;
+        for (long i = 0; i < count; i++) {
+            if (central.getInt(position) != CENTRAL_SIGNATURE)
+                throw new ZipException("Invalid central directory header.");
+            int flags = central.getShort(position + 8) & 0xFFFF;
+            int method = central.getShort(position + 10) & 0xFFFF;
+            long crc = central.getInt(position + 16) & ZIP64_MAGIC;
+            long compressedSize = central.getInt(position + 20) & ZIP64_MAGIC;
+            long size = central.getInt(position + 24) & ZIP64_MAGIC;
+            int nameLength = central.getShort(position + 28) & 0xFFFF;
+            int extraLength = central.getShort(position + 30) & 0xFFFF;
+            int commentLength = central.getShort(position + 32) & 0xFFFF;
+            long localOffset = central.getInt(position + 42) & ZIP64_MAGIC;
+
+            byte[] name = new byte[nameLength];
+            central.position(position + 46);
+            central.get(name);
+
+            // The ZIP64 extra field only contains the values which overflowed, in this order.
+            int extra = position + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = central.getShort(extra) & 0xFFFF;
+                int length = central.getShort(extra + 2) & 0xFFFF;
+                if (id == 0x0001) {
+                    int field = extra + 4;
+                    if (size == ZIP64_MAGIC) {
+                        size = central.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == ZIP64_MAGIC) {
+                        compressedSize = central.getLong(field);
+                        field += 8;
+                    }
+                    if (localOffset == ZIP64_MAGIC)
+                        localOffset = central.getLong(field);
+                    break;
+                }
+                extra += 4 + length;
+            }
+
+            Entry entry = new Entry(new String(name, StandardCharsets.UTF_8), flags, method, crc, compressedSize, size, localOffset);
+            entries.put(entry.name, entry);
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+
+        return new ZipCentralDirectory(entries);
+    }
+
+    static @NotNull ByteBuffer readFully(@NotNull FileChannel channel, long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("Unexpected end of ZIP file.");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Represents an entry of the central directory.
+     */
+    static final class Entry
+    {
+        final String name;
+        final int flags;
+        final int method;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+
+        private Entry(@NotNull String name, int flags, int method, long crc, long compressedSize, long size, long localHeaderOffset)
+        {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public boolean isDirectory()
+        {
+            return this.name.endsWith("/");
+        }
+
+        public boolean isEncrypted()
+        {
+            return (this.flags & 1) != 0;
+        }
+
+        /**
+         * Returns the offset of the entry data in the ZIP file.
+         *
+         * @param localHeader The 30 bytes of the local header of this entry.
+         * @return The offset of the data.
+         * @throws ZipException If the local header is invalid.
+         */
+        long getDataOffset(@NotNull ByteBuffer localHeader) throws ZipException
+        {
+            localHeader.order(ByteOrder.LITTLE_ENDIAN);
+            if (localHeader.getInt(0) != LOCAL_SIGNATURE)
+                throw new ZipException("Invalid local header for " + this.name + ".");
+            return this.localHeaderOffset + 30 + (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF);
+        }
+
+        /**
+         * Reads the compressed data of this entry.
+         *
+         * @param channel The channel of the ZIP file.
+         * @return The compressed data.
+         * @throws IOException If the data could not be read.
+         */
+        byte[] readRaw(@NotNull FileChannel channel) throws IOException
+        {
+            if (this.compressedSize > Integer.MAX_VALUE)
+                throw new ZipException("Entry " + this.name + " is too large.");
+            long offset = this.getDataOffset(readFully(channel, this.localHeaderOffset, 30));
+            return readFully(channel, offset, (int) this.compressedSize).array();
+        }
+    }
+}
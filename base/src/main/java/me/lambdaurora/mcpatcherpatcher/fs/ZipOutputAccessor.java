@@ -24,8 +24,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Collection;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -34,6 +33,9 @@ import java.util.zip.ZipOutputStream;
  * Represents the ZIP resource output accessor.
  * <p>
  * This is write-only and read-only to an extent.
+ * <p>
+ * Resources opened with {@link #openOutput(String)} are buffered and only added to the ZIP file once closed,
+ * as an entry cannot be removed from the ZIP file once started.
  *
  * @author LambdAurora
  * @version 1.0.0
@@ -41,7 +43,7 @@ import java.util.zip.ZipOutputStream;
  */
 public class ZipOutputAccessor implements ResourceAccessor
 {
-    private final Map<ResourceType, List<Identifier>> resources = new HashMap<>();
+    private final ResourceIndex resources = new ResourceIndex();
     private final ZipOutputStream zipOut;
 
     public ZipOutputAccessor(@NotNull ZipOutputStream zipOut)
@@ -70,22 +72,7 @@ public class ZipOutputAccessor implements ResourceAccessor
     @Override
     public @NotNull Collection<String> getNamespaces(@NotNull ResourceType type)
     {
-        return this.resources.getOrDefault(type, new ArrayList<>())
-                .stream().map(Identifier::getNamespace)
-                .distinct().collect(Collectors.toList());
-    }
-
-    @Override
-    public boolean put(@NotNull ResourceType type, @NotNull Identifier identifier, @NotNull byte[] out)
-    {
-        boolean result = this.put(ResourceAccessor.asPath(type, identifier), out);
-
-        if (result) {
-            List<Identifier> identifiers = this.resources.computeIfAbsent(type, k -> new ArrayList<>());
-            identifiers.add(identifier);
-        }
-
-        return result;
+        return this.resources.getNamespaces(type);
     }
 
     @Override
@@ -98,6 +85,7 @@ public class ZipOutputAccessor implements ResourceAccessor
             this.zipOut.write(out, 0, out.length);
             this.zipOut.closeEntry();
 
+            this.resources.add(path);
             return true;
         } catch (IOException e) {
             return false;
@@ -18,14 +18,22 @@
 package me.lambdaurora.mcpatcherpatcher.image;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * Represents a basic image using BufferedImage as implementation.
+ * <p>
+ * {@link BufferedImage#TYPE_INT_ARGB} images, including sub-images, are accessed directly through their backing array,
+ * other images go through the color model of the image.
  *
  * @author LambdAurora
  * @version 1.0.0
@@ -33,11 +41,55 @@ import java.io.IOException;
  */
 public class BasicBufferedImage implements BasicImage
 {
+    private static final Map<Integer, ImageBufferPool.Format<BufferedImage>> FORMATS = new HashMap<>();
+
     private final BufferedImage image;
+    private final PngEncoder encoder;
+    private final ImageBufferPool pool;
+    /**
+     * The backing array of INT_ARGB images, or null for other images.
+     */
+    private final int[] data;
+    private final int dataOffset;
+    private final int scanlineStride;
+    private boolean closed = false;
 
     public BasicBufferedImage(@NotNull BufferedImage image)
+    {
+        this(image, PngEncoder.DEFAULT);
+    }
+
+    public BasicBufferedImage(@NotNull BufferedImage image, @NotNull PngEncoder encoder)
+    {
+        this(image, encoder, null);
+    }
+
+    /**
+     * Creates a new basic image.
+     *
+     * @param image The image.
+     * @param encoder The encoder used by {@link #getBytes()}.
+     * @param pool The pool the image is released to when closed, or null if the image is not pooled.
+     */
+    public BasicBufferedImage(@NotNull BufferedImage image, @NotNull PngEncoder encoder, @Nullable ImageBufferPool pool)
     {
         this.image = image;
+        this.encoder = encoder;
+        this.pool = getFormat(image.getType()) == null ? null : pool;
+
+        WritableRaster raster = image.getRaster();
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB && raster.getDataBuffer() instanceof DataBufferInt
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+            SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+            this.data = ((DataBufferInt) raster.getDataBuffer()).getData();
+            this.dataOffset = raster.getDataBuffer().getOffset()
+                    + sampleModel.getOffset(raster.getMinX() - raster.getSampleModelTranslateX(), raster.getMinY() - raster.getSampleModelTranslateY());
+            this.scanlineStride = sampleModel.getScanlineStride();
+        } else {
+            this.data = null;
+            this.dataOffset = 0;
+            this.scanlineStride = 0;
+        }
     }
 
     @Override
@@ -55,20 +107,84 @@ public class BasicBufferedImage implements BasicImage
     @Override
     public int getPixelColor(int x, int y)
     {
-        return this.image.getRGB(x, y);
+        if (this.data == null)
+            return this.image.getRGB(x, y);
+        return this.data[this.getIndex(x, y, 1, 1)];
     }
 
     @Override
     public void setPixelColor(int x, int y, int color)
     {
-        this.image.setRGB(x, y, color);
+        if (this.data == null)
+            this.image.setRGB(x, y, color);
+        else
+            this.data[this.getIndex(x, y, 1, 1)] = color;
+    }
+
+    @Override
+    public void getPixels(int x, int y, int width, int height, @NotNull int[] pixels, int offset, int scanSize)
+    {
+        if (this.data == null) {
+            this.image.getRGB(x, y, width, height, pixels, offset, scanSize);
+            return;
+        }
+        int index = this.getIndex(x, y, width, height);
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(this.data, index + row * this.scanlineStride, pixels, offset + row * scanSize, width);
+        }
+    }
+
+    @Override
+    public void setPixels(int x, int y, int width, int height, @NotNull int[] pixels, int offset, int scanSize)
+    {
+        if (this.data == null) {
+            this.image.setRGB(x, y, width, height, pixels, offset, scanSize);
+            return;
+        }
+        int index = this.getIndex(x, y, width, height);
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(pixels, offset + row * scanSize, this.data, index + row * this.scanlineStride, width);
+        }
+    }
+
+    @Override
+    public void copyRect(int x, int y, @NotNull BasicImage destination, int destinationX, int destinationY, int width, int height)
+    {
+        if (this.data == null || !(destination instanceof BasicBufferedImage) || ((BasicBufferedImage) destination).data == null) {
+            BasicImage.super.copyRect(x, y, destination, destinationX, destinationY, width, height);
+            return;
+        }
+
+        BasicBufferedImage target = (BasicBufferedImage) destination;
+        int index = this.getIndex(x, y, width, height);
+        int destinationIndex = target.getIndex(destinationX, destinationY, width, height);
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(this.data, index + row * this.scanlineStride, target.data, destinationIndex + row * target.scanlineStride, width);
+        }
+    }
+
+    /**
+     * Returns the index of a pixel in the backing array, checking that the specified rectangle is inside the image.
+     *
+     * @param x The X-coordinate of the rectangle.
+     * @param y The Y-coordinate of the rectangle.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @return The index of the first pixel of the rectangle.
+     */
+    private int getIndex(int x, int y, int width, int height)
+    {
+        if (x < 0 || y < 0 || width < 0 || height < 0 || x + width > this.image.getWidth() || y + height > this.image.getHeight())
+            throw new IndexOutOfBoundsException("Rectangle (" + x + ", " + y + ", " + width + ", " + height + ") out of bounds of "
+                    + this.image.getWidth() + "x" + this.image.getHeight() + " image.");
+        return this.dataOffset + y * this.scanlineStride + x;
     }
 
     @Override
     public byte[] getBytes()
     {
         try {
-            return toByteArrayAutoClosable(this.image, "png");
+            return this.encoder.encode(this.image);
         } catch (IOException e) {
             return new byte[0];
         }
@@ -77,22 +193,45 @@ public class BasicBufferedImage implements BasicImage
     @Override
     public @NotNull BasicImage getSubImage(int x, int y, int width, int height)
     {
-        return new BasicBufferedImage(this.image.getSubimage(x, y, width, height));
+        return new BasicBufferedImage(this.image.getSubimage(x, y, width, height), this.encoder);
     }
 
     @Override
-    public void close()
+    public synchronized void close()
     {
+        if (this.pool == null || this.closed)
+            return;
+        this.closed = true;
+        this.pool.release(Objects.requireNonNull(getFormat(this.image.getType())), this.image.getWidth(), this.image.getHeight(), this.image);
     }
 
     /**
-     * @author FlashyReese
+     * Returns the pool format of the images of the specified type.
+     * <p>
+     * Only the standard types without a palette can be pooled, indexed images carry their palette in their color model.
+     *
+     * @param type The type of the images.
+     * @return The format, or null if images of this type cannot be pooled.
      */
-    private static byte[] toByteArrayAutoClosable(@NotNull BufferedImage image, @NotNull String imageType) throws IOException
+    public static @Nullable ImageBufferPool.Format<BufferedImage> getFormat(int type)
     {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            ImageIO.write(image, imageType, out); // Technically we don't need a imageType param, I'm pretty sure all mc resource packs are png only.
-            return out.toByteArray();
-        }
+        return FORMATS.get(type);
+    }
+
+    private static void registerFormat(int type, @NotNull String name, int bytesPerPixel)
+    {
+        FORMATS.put(type, new ImageBufferPool.Format<>(name, bytesPerPixel, (width, height) -> new BufferedImage(width, height, type)));
+    }
+
+    static {
+        registerFormat(BufferedImage.TYPE_INT_RGB, "int_rgb", 4);
+        registerFormat(BufferedImage.TYPE_INT_ARGB, "int_argb", 4);
+        registerFormat(BufferedImage.TYPE_INT_ARGB_PRE, "int_argb_pre", 4);
+        registerFormat(BufferedImage.TYPE_INT_BGR, "int_bgr", 4);
+        registerFormat(BufferedImage.TYPE_3BYTE_BGR, "3byte_bgr", 3);
+        registerFormat(BufferedImage.TYPE_4BYTE_ABGR, "4byte_abgr", 4);
+        registerFormat(BufferedImage.TYPE_4BYTE_ABGR_PRE, "4byte_abgr_pre", 4);
+        registerFormat(BufferedImage.TYPE_BYTE_GRAY, "byte_gray", 1);
+        registerFormat(BufferedImage.TYPE_USHORT_GRAY, "ushort_gray", 2);
     }
 }
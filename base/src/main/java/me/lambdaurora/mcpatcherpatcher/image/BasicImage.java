@@ -60,6 +60,96 @@ public interface BasicImage
      */
     void setPixelColor(int x, int y, int color);
 
+    /**
+     * Reads the pixel colors of a rectangle of this image, in the same format as {@link #getPixelColor(int, int)}.
+     * <p>
+     * The pixel at {@code (x + i, y + j)} is stored at {@code pixels[offset + j * scanSize + i]}.
+     *
+     * @param x The X-coordinate of the rectangle.
+     * @param y The Y-coordinate of the rectangle.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @param pixels The destination array.
+     * @param offset The offset of the first pixel in the array.
+     * @param scanSize The distance between two rows in the array.
+     */
+    default void getPixels(int x, int y, int width, int height, @NotNull int[] pixels, int offset, int scanSize)
+    {
+        for (int row = 0; row < height; row++) {
+            int index = offset + row * scanSize;
+            for (int column = 0; column < width; column++) {
+                pixels[index + column] = this.getPixelColor(x + column, y + row);
+            }
+        }
+    }
+
+    /**
+     * Writes the pixel colors of a rectangle of this image, in the same format as {@link #setPixelColor(int, int, int)}.
+     * <p>
+     * The pixel at {@code (x + i, y + j)} is read from {@code pixels[offset + j * scanSize + i]}.
+     *
+     * @param x The X-coordinate of the rectangle.
+     * @param y The Y-coordinate of the rectangle.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @param pixels The source array.
+     * @param offset The offset of the first pixel in the array.
+     * @param scanSize The distance between two rows in the array.
+     */
+    default void setPixels(int x, int y, int width, int height, @NotNull int[] pixels, int offset, int scanSize)
+    {
+        for (int row = 0; row < height; row++) {
+            int index = offset + row * scanSize;
+            for (int column = 0; column < width; column++) {
+                this.setPixelColor(x + column, y + row, pixels[index + column]);
+            }
+        }
+    }
+
+    /**
+     * Reads a row of pixels.
+     *
+     * @param y The Y-coordinate of the row.
+     * @param row The destination array, at least as long as the width of the image.
+     */
+    default void getRow(int y, @NotNull int[] row)
+    {
+        this.getPixels(0, y, this.getWidth(), 1, row, 0, this.getWidth());
+    }
+
+    /**
+     * Writes a row of pixels.
+     *
+     * @param y The Y-coordinate of the row.
+     * @param row The source array, at least as long as the width of the image.
+     */
+    default void setRow(int y, @NotNull int[] row)
+    {
+        this.setPixels(0, y, this.getWidth(), 1, row, 0, this.getWidth());
+    }
+
+    /**
+     * Copies a rectangle of this image into another image.
+     * <p>
+     * Both images must use the same pixel format. The copy goes row by row, so only one row is buffered at a time.
+     *
+     * @param x The X-coordinate of the rectangle in this image.
+     * @param y The Y-coordinate of the rectangle in this image.
+     * @param destination The destination image.
+     * @param destinationX The X-coordinate of the rectangle in the destination image.
+     * @param destinationY The Y-coordinate of the rectangle in the destination image.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     */
+    default void copyRect(int x, int y, @NotNull BasicImage destination, int destinationX, int destinationY, int width, int height)
+    {
+        int[] row = new int[width];
+        for (int i = 0; i < height; i++) {
+            this.getPixels(x, y + i, width, 1, row, 0, width);
+            destination.setPixels(destinationX, destinationY + i, width, 1, row, 0, width);
+        }
+    }
+
     /**
      * Returns the bytes of the image.
      *
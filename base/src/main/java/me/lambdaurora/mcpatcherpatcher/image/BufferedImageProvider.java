@@ -20,11 +20,25 @@ package me.lambdaurora.mcpatcherpatcher.image;
 import org.jetbrains.annotations.NotNull;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Objects;
 
 /**
  * Represents an image provider using {@link BasicBufferedImage} as implementation.
+ * <p>
+ * Images are decoded with ImageIO and normalized once into {@link BufferedImage#TYPE_INT_ARGB} images,
+ * so every pixel operation works on packed ARGB arrays. Both the decoded and the normalized images are drawn from an
+ * {@link ImageBufferPool}, closing the provided images releases them to the pool.
  *
  * @author LambdAurora
  * @version 1.0.0
@@ -32,9 +46,121 @@ import java.io.InputStream;
  */
 public class BufferedImageProvider implements ImageProvider
 {
+    private static final ImageBufferPool.Format<BufferedImage> ARGB_FORMAT = Objects.requireNonNull(BasicBufferedImage.getFormat(BufferedImage.TYPE_INT_ARGB));
+
+    private final PngEncoder encoder;
+    private final ImageBufferPool pool;
+
+    public BufferedImageProvider()
+    {
+        this(PngEncoder.DEFAULT);
+    }
+
+    public BufferedImageProvider(@NotNull PngEncoder encoder)
+    {
+        this(encoder, new ImageBufferPool());
+    }
+
+    /**
+     * Creates a new image provider.
+     *
+     * @param encoder The encoder used by the provided images.
+     * @param pool The pool of the images decoded by ImageIO.
+     */
+    public BufferedImageProvider(@NotNull PngEncoder encoder, @NotNull ImageBufferPool pool)
+    {
+        this.encoder = encoder;
+        this.pool = pool;
+    }
+
+    @Override
+    public @NotNull PngEncoder getEncoder()
+    {
+        return this.encoder;
+    }
+
+    public @NotNull ImageBufferPool getPool()
+    {
+        return this.pool;
+    }
+
+    /**
+     * Converts a decoded image to packed ARGB pixels.
+     * <p>
+     * The byte layouts ImageIO decodes most PNG images into are unpacked directly, other images go through their color model.
+     *
+     * @param image The decoded image, which is not a sub-image.
+     * @param pixels The destination array, {@code width * height} pixels long.
+     */
+    private static void toArgb(@NotNull BufferedImage image, @NotNull int[] pixels)
+    {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        WritableRaster raster = image.getRaster();
+        boolean packed = raster.getParent() == null && raster.getDataBuffer() instanceof DataBufferByte && raster.getDataBuffer().getNumBanks() == 1;
+        if (packed && image.getType() == BufferedImage.TYPE_4BYTE_ABGR) {
+            byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+            for (int i = 0, j = 0; i < pixels.length; i++, j += 4) {
+                pixels[i] = (data[j] & 0xFF) << 24 | (data[j + 3] & 0xFF) << 16 | (data[j + 2] & 0xFF) << 8 | data[j + 1] & 0xFF;
+            }
+        } else if (packed && image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+            for (int i = 0, j = 0; i < pixels.length; i++, j += 3) {
+                pixels[i] = 0xFF000000 | (data[j + 2] & 0xFF) << 16 | (data[j + 1] & 0xFF) << 8 | data[j] & 0xFF;
+            }
+        } else {
+            image.getRGB(0, 0, width, height, pixels, 0, width);
+        }
+    }
+
     @Override
     public @NotNull BasicImage readImage(@NotNull InputStream inputStream) throws IOException
     {
-        return new BasicBufferedImage(ImageIO.read(inputStream));
+        try (ImageInputStream stream = ImageIO.createImageInputStream(inputStream)) {
+            if (stream == null)
+                throw new IOException("Could not read the image.");
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext())
+                throw new IOException("Unsupported image format.");
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                ImageReadParam param = reader.getDefaultReadParam();
+
+                // The image is decoded into a pooled image when one of its destination types allows it,
+                // the raw type of RGB and RGBA PNGs is custom but they are offered as TYPE_3BYTE_BGR and TYPE_4BYTE_ABGR.
+                ImageBufferPool.Format<BufferedImage> format = null;
+                for (Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0); format == null && types.hasNext(); ) {
+                    format = BasicBufferedImage.getFormat(types.next().getBufferedImageType());
+                }
+                BufferedImage destination = null;
+                if (format != null) {
+                    destination = this.pool.acquire(format, width, height);
+                    param.setDestination(destination);
+                }
+
+                BufferedImage image;
+                try {
+                    image = reader.read(0, param);
+                } catch (IOException | RuntimeException e) {
+                    if (destination != null)
+                        this.pool.release(format, width, height, destination);
+                    throw e;
+                }
+
+                if (image.getType() == BufferedImage.TYPE_INT_ARGB)
+                    return new BasicBufferedImage(image, this.encoder, this.pool);
+                BufferedImage argbImage = this.pool.acquire(ARGB_FORMAT, width, height);
+                toArgb(image, ((DataBufferInt) argbImage.getRaster().getDataBuffer()).getData());
+                if (destination != null)
+                    this.pool.release(format, width, height, destination);
+                return new BasicBufferedImage(argbImage, this.encoder, this.pool);
+            } finally {
+                reader.dispose();
+            }
+        }
     }
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.image;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Represents a basic image stored off-heap in a direct buffer, in the ARGB format.
+ * <p>
+ * Sub-images are views sharing the storage of their parent, they must not be used after their parent is closed.
+ * Closing the parent image gives its buffer back to the pool it was acquired from.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see DirectImageProvider
+ */
+public class DirectBufferImage implements BasicImage
+{
+    /**
+     * The format of the pooled direct buffers, in native byte order.
+     */
+    public static final ImageBufferPool.Format<ByteBuffer> FORMAT = new ImageBufferPool.Format<>("direct_argb", 4,
+            (width, height) -> ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder()));
+
+    private final ImageBufferPool pool;
+    private final DirectBufferImage parent;
+    private final ByteBuffer buffer;
+    private final IntBuffer pixels;
+    private final int offset;
+    private final int stride;
+    private final int width;
+    private final int height;
+    private final PngEncoder encoder;
+    private boolean closed = false;
+
+    /**
+     * Creates a new image, owning the specified buffer.
+     *
+     * @param pool The pool the buffer is released to when closed, or null if the buffer is not pooled.
+     * @param buffer The direct buffer in native byte order, at least {@code width * height * 4} bytes long.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param encoder The encoder used by {@link #getBytes()}.
+     */
+    public DirectBufferImage(@Nullable ImageBufferPool pool, @NotNull ByteBuffer buffer, int width, int height, @NotNull PngEncoder encoder)
+    {
+        this.pool = pool;
+        this.parent = null;
+        this.buffer = buffer;
+        this.pixels = buffer.asIntBuffer();
+        this.offset = 0;
+        this.stride = width;
+        this.width = width;
+        this.height = height;
+        this.encoder = encoder;
+    }
+
+    private DirectBufferImage(@NotNull DirectBufferImage image, int x, int y, int width, int height)
+    {
+        this.pool = null;
+        this.parent = image.parent == null ? image : image.parent;
+        this.buffer = image.buffer;
+        this.pixels = image.pixels;
+        this.offset = image.offset + y * image.stride + x;
+        this.stride = image.stride;
+        this.width = width;
+        this.height = height;
+        this.encoder = image.encoder;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getPixelColor(int x, int y)
+    {
+        return this.getPixels().get(this.getIndex(x, y, 1, 1));
+    }
+
+    @Override
+    public void setPixelColor(int x, int y, int color)
+    {
+        this.getPixels().put(this.getIndex(x, y, 1, 1), color);
+    }
+
+    @Override
+    public void getPixels(int x, int y, int width, int height, @NotNull int[] pixels, int offset, int scanSize)
+    {
+        int index = this.getIndex(x, y, width, height);
+        // The buffer position is not shared, sub-images of the same image may be read concurrently.
+        IntBuffer view = this.getPixels().duplicate();
+        for (int row = 0; row < height; row++) {
+            view.position(index + row * this.stride);
+            view.get(pixels, offset + row * scanSize, width);
+        }
+    }
+
+    @Override
+    public void setPixels(int x, int y, int width, int height, @NotNull int[] pixels, int offset, int scanSize)
+    {
+        int index = this.getIndex(x, y, width, height);
+        IntBuffer view = this.getPixels().duplicate();
+        for (int row = 0; row < height; row++) {
+            view.position(index + row * this.stride);
+            view.put(pixels, offset + row * scanSize, width);
+        }
+    }
+
+    @Override
+    public void copyRect(int x, int y, @NotNull BasicImage destination, int destinationX, int destinationY, int width, int height)
+    {
+        if (!(destination instanceof DirectBufferImage)) {
+            BasicImage.super.copyRect(x, y, destination, destinationX, destinationY, width, height);
+            return;
+        }
+
+        DirectBufferImage other = (DirectBufferImage) destination;
+        int index = this.getIndex(x, y, width, height);
+        int destinationIndex = other.getIndex(destinationX, destinationY, width, height);
+        IntBuffer source = this.getPixels().duplicate();
+        IntBuffer target = other.getPixels().duplicate();
+        for (int row = 0; row < height; row++) {
+            source.limit(index + row * this.stride + width).position(index + row * this.stride);
+            target.position(destinationIndex + row * other.stride);
+            target.put(source);
+        }
+    }
+
+    @Override
+    public byte[] getBytes()
+    {
+        try {
+            return this.encoder.encode(this);
+        } catch (IOException e) {
+            return new byte[0];
+        }
+    }
+
+    @Override
+    public @NotNull BasicImage getSubImage(int x, int y, int width, int height)
+    {
+        this.getIndex(x, y, width, height);
+        return new DirectBufferImage(this, x, y, width, height);
+    }
+
+    /**
+     * Returns the pixel buffer, checking that the image is not closed.
+     *
+     * @return The pixel buffer.
+     */
+    private @NotNull IntBuffer getPixels()
+    {
+        if ((this.parent == null ? this : this.parent).closed)
+            throw new IllegalStateException("Image is closed.");
+        return this.pixels;
+    }
+
+    /**
+     * Returns the index of a pixel in the buffer, checking that the specified rectangle is inside the image.
+     *
+     * @param x The X-coordinate of the rectangle.
+     * @param y The Y-coordinate of the rectangle.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @return The index of the first pixel of the rectangle.
+     */
+    private int getIndex(int x, int y, int width, int height)
+    {
+        if (x < 0 || y < 0 || width < 0 || height < 0 || x + width > this.width || y + height > this.height)
+            throw new IndexOutOfBoundsException("Rectangle (" + x + ", " + y + ", " + width + ", " + height + ") out of bounds of "
+                    + this.width + "x" + this.height + " image.");
+        return this.offset + y * this.stride + x;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (this.parent != null || this.closed)
+            return;
+        this.closed = true;
+        if (this.pool != null)
+            this.pool.release(FORMAT, this.width, this.height, this.buffer);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.image;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Represents an image provider using {@link DirectBufferImage} as implementation.
+ * <p>
+ * Images are decoded straight into direct buffers, keeping the pixels of large textures out of the heap.
+ * The buffers of closed images go back to an {@link ImageBufferPool} for the next images of the same size.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class DirectImageProvider implements ImageProvider
+{
+    private final PngEncoder encoder;
+    private final ImageBufferPool pool;
+
+    public DirectImageProvider()
+    {
+        this(PngEncoder.DEFAULT);
+    }
+
+    public DirectImageProvider(@NotNull PngEncoder encoder)
+    {
+        this(encoder, new ImageBufferPool());
+    }
+
+    /**
+     * Creates a new image provider.
+     *
+     * @param encoder The encoder used by the provided images.
+     * @param pool The pool of the image buffers.
+     */
+    public DirectImageProvider(@NotNull PngEncoder encoder, @NotNull ImageBufferPool pool)
+    {
+        this.encoder = encoder;
+        this.pool = pool;
+    }
+
+    @Override
+    public @NotNull PngEncoder getEncoder()
+    {
+        return this.encoder;
+    }
+
+    public @NotNull ImageBufferPool getPool()
+    {
+        return this.pool;
+    }
+
+    @Override
+    public @NotNull BasicImage readImage(@NotNull InputStream inputStream) throws IOException
+    {
+        return PngDecoder.decode(inputStream, this::createImage);
+    }
+
+    /**
+     * Creates a new image, its pixels are not cleared.
+     *
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @return The image.
+     * @throws IOException If the image is too large.
+     */
+    public @NotNull DirectBufferImage createImage(int width, int height) throws IOException
+    {
+        if (width <= 0 || height <= 0 || (long) width * height * 4L > Integer.MAX_VALUE)
+            throw new IOException("Invalid image size " + width + "x" + height + ".");
+        return new DirectBufferImage(this.pool, this.pool.acquire(DirectBufferImage.FORMAT, width, height), width, height, this.encoder);
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.image;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Represents a pool of image buffers, reused by the images with the same size and format.
+ * <p>
+ * Textures of the same size come up again and again in a batch of packs, a released buffer is kept for the next image
+ * of the same size instead of allocating a new one. The pool is bounded by the memory used by the kept buffers,
+ * the least recently used sizes are dropped first.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ImageBufferPool
+{
+    /**
+     * The default maximum amount of memory kept by a pool, 64 MiB.
+     */
+    public static final long DEFAULT_CAPACITY = 64L << 20;
+
+    private final long capacity;
+    private final LinkedHashMap<Key, Deque<Object>> buffers = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0L;
+    private long allocations = 0L;
+    private long reuses = 0L;
+    private long discards = 0L;
+
+    public ImageBufferPool()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new image buffer pool.
+     *
+     * @param capacity The maximum amount of memory in bytes kept by the released buffers.
+     */
+    public ImageBufferPool(long capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Acquires a buffer, reusing a released one if possible. The content of a reused buffer is not cleared.
+     *
+     * @param format The format of the buffer.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param <B> The type of the buffer.
+     * @return The buffer.
+     */
+    @SuppressWarnings("unchecked")
+    public <B> @NotNull B acquire(@NotNull Format<B> format, int width, int height)
+    {
+        synchronized (this) {
+            Deque<Object> buffers = this.buffers.get(new Key(format, width, height));
+            if (buffers != null && !buffers.isEmpty()) {
+                B buffer = (B) buffers.pop();
+                this.size -= format.getSize(width, height);
+                this.reuses++;
+                return buffer;
+            }
+            this.allocations++;
+        }
+        return format.allocator.allocate(width, height);
+    }
+
+    /**
+     * Releases a buffer, which is kept for the next images of the same size and format if the pool has room for it.
+     *
+     * @param format The format of the buffer.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param buffer The buffer, which must not be used anymore.
+     * @param <B> The type of the buffer.
+     */
+    public <B> void release(@NotNull Format<B> format, int width, int height, @NotNull B buffer)
+    {
+        long bufferSize = format.getSize(width, height);
+        List<Runnable> disposals = new ArrayList<>();
+        synchronized (this) {
+            if (bufferSize > this.capacity) {
+                this.discards++;
+                disposals.add(() -> format.disposer.accept(buffer));
+            } else {
+                Iterator<Map.Entry<Key, Deque<Object>>> iterator = this.buffers.entrySet().iterator();
+                while (this.size + bufferSize > this.capacity && iterator.hasNext()) {
+                    Map.Entry<Key, Deque<Object>> entry = iterator.next();
+                    Key key = entry.getKey();
+                    Deque<Object> buffers = entry.getValue();
+                    while (!buffers.isEmpty() && this.size + bufferSize > this.capacity) {
+                        disposals.add(key.dispose(buffers.pollLast()));
+                        this.size -= key.getSize();
+                        this.discards++;
+                    }
+                    if (buffers.isEmpty())
+                        iterator.remove();
+                }
+                this.buffers.computeIfAbsent(new Key(format, width, height), key -> new ArrayDeque<>()).push(buffer);
+                this.size += bufferSize;
+            }
+        }
+        // Disposing may free native memory, it is done outside of the lock.
+        disposals.forEach(Runnable::run);
+    }
+
+    /**
+     * Disposes every kept buffer.
+     */
+    public void clear()
+    {
+        List<Runnable> disposals = new ArrayList<>();
+        synchronized (this) {
+            this.buffers.forEach((key, buffers) -> buffers.forEach(buffer -> disposals.add(key.dispose(buffer))));
+            this.buffers.clear();
+            this.size = 0L;
+        }
+        disposals.forEach(Runnable::run);
+    }
+
+    /**
+     * Returns the memory used by the kept buffers.
+     *
+     * @return The size in bytes.
+     */
+    public synchronized long getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of buffers which had to be allocated.
+     *
+     * @return The number of allocations.
+     */
+    public synchronized long getAllocations()
+    {
+        return this.allocations;
+    }
+
+    /**
+     * Returns the number of buffers which were reused instead of allocated.
+     *
+     * @return The number of reuses.
+     */
+    public synchronized long getReuses()
+    {
+        return this.reuses;
+    }
+
+    /**
+     * Returns the number of released buffers which were disposed because the pool was full.
+     *
+     * @return The number of discarded buffers.
+     */
+    public synchronized long getDiscards()
+    {
+        return this.discards;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("%d allocated, %d reused, %d discarded, %d B kept", this.allocations, this.reuses, this.discards, this.size);
+    }
+
+    /**
+     * Represents a format of image buffers.
+     *
+     * @param <B> The type of the buffers.
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public static final class Format<B>
+    {
+        private final String name;
+        private final int bytesPerPixel;
+        private final Allocator<B> allocator;
+        private final Consumer<B> disposer;
+
+        /**
+         * Creates a new format of image buffers.
+         *
+         * @param name The name of the format.
+         * @param bytesPerPixel The number of bytes used by a pixel.
+         * @param allocator The allocator of new buffers.
+         * @param disposer The disposer of the buffers dropped by the pool.
+         */
+        public Format(@NotNull String name, int bytesPerPixel, @NotNull Allocator<B> allocator, @NotNull Consumer<B> disposer)
+        {
+            this.name = name;
+            this.bytesPerPixel = bytesPerPixel;
+            this.allocator = allocator;
+            this.disposer = disposer;
+        }
+
+        /**
+         * Creates a new format of image buffers which do not need to be disposed.
+         *
+         * @param name The name of the format.
+         * @param bytesPerPixel The number of bytes used by a pixel.
+         * @param allocator The allocator of new buffers.
+         */
+        public Format(@NotNull String name, int bytesPerPixel, @NotNull Allocator<B> allocator)
+        {
+            this(name, bytesPerPixel, allocator, buffer -> {
+            });
+        }
+
+        public @NotNull String getName()
+        {
+            return this.name;
+        }
+
+        private long getSize(int width, int height)
+        {
+            return (long) width * height * this.bytesPerPixel;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.name;
+        }
+    }
+
+    /**
+     * Represents an allocator of image buffers.
+     *
+     * @param <B> The type of the buffers.
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    @FunctionalInterface
+    public interface Allocator<B>
+    {
+        @NotNull B allocate(int width, int height);
+    }
+
+    private static class Key
+    {
+        private final Format<?> format;
+        private final int width;
+        private final int height;
+
+        private Key(@NotNull Format<?> format, int width, int height)
+        {
+            this.format = format;
+            this.width = width;
+            this.height = height;
+        }
+
+        private long getSize()
+        {
+            return this.format.getSize(this.width, this.height);
+        }
+
+        @SuppressWarnings("unchecked")
+        private @NotNull Runnable dispose(@NotNull Object buffer)
+        {
+            Format<Object> format = (Format<Object>) this.format;
+            return () -> format.disposer.accept(buffer);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return this.format == key.format && this.width == key.width && this.height == key.height;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(System.identityHashCode(this.format), this.width, this.height);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.image;
+
+import me.lambdaurora.mcpatcherpatcher.Closeable;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Represents a cache of decoded images, bounded by the memory used by their pixels.
+ * <p>
+ * Images are reference-counted: an acquired image is never evicted until it is released.
+ * Released images are evicted in least recently used order once the cache goes past its capacity, and closed.
+ * Concurrent requests of the same key share one load, and failed loads are remembered so they are not retried.
+ *
+ * @param <K> The type of the keys.
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ImageCache<K> implements Closeable
+{
+    private final long capacity;
+    private final LinkedHashMap<K, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0L;
+    private int hits = 0;
+    private int misses = 0;
+
+    /**
+     * Creates a new image cache.
+     *
+     * @param capacity The maximum amount of bytes used by the released images.
+     */
+    public ImageCache(long capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Acquires the image of the specified key, loading it if needed.
+     * <p>
+     * Every successful call must be followed by a call to {@link #release(Object)} once the image is not used anymore.
+     *
+     * @param key The key of the image.
+     * @param loader The loader of the image.
+     * @return The image.
+     * @throws IOException If the image could not be loaded.
+     */
+    public @NotNull BasicImage acquire(@NotNull K key, @NotNull Loader loader) throws IOException
+    {
+        Entry entry;
+        boolean load = false;
+        synchronized (this) {
+            entry = this.entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                this.entries.put(key, entry);
+                load = true;
+                this.misses++;
+            } else {
+                this.hits++;
+            }
+            entry.references++;
+        }
+
+        if (load) {
+            try {
+                BasicImage image = loader.load();
+                entry.future.complete(image);
+                synchronized (this) {
+                    entry.size = (long) image.getWidth() * image.getHeight() * 4L;
+                    this.size += entry.size;
+                }
+            } catch (IOException | RuntimeException e) {
+                entry.future.completeExceptionally(e);
+            }
+        }
+
+        try {
+            return entry.future.join();
+        } catch (CompletionException e) {
+            synchronized (this) {
+                entry.references--;
+            }
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException("Could not load image " + key + ".", e.getCause());
+        }
+    }
+
+    /**
+     * Releases an image acquired with {@link #acquire(Object, Loader)}.
+     *
+     * @param key The key of the image.
+     */
+    public synchronized void release(@NotNull K key)
+    {
+        Entry entry = this.entries.get(key);
+        if (entry == null || entry.references == 0)
+            throw new IllegalStateException("Image " + key + " is not acquired.");
+        entry.references--;
+        this.evict();
+    }
+
+    /**
+     * Removes the image of the specified key from the cache, so it is loaded again by the next {@link #acquire(Object, Loader)}.
+     * <p>
+     * Failed loads are removed too.
+     *
+     * @param key The key of the image.
+     * @throws IllegalStateException If the image is acquired.
+     */
+    public synchronized void invalidate(@NotNull K key)
+    {
+        Entry entry = this.entries.get(key);
+        if (entry == null)
+            return;
+        // Images are acquired while they load.
+        if (entry.references != 0)
+            throw new IllegalStateException("Image " + key + " is acquired.");
+
+        this.entries.remove(key);
+        if (!entry.future.isCompletedExceptionally()) {
+            this.size -= entry.size;
+            entry.future.join().close();
+        }
+    }
+
+    private void evict()
+    {
+        Iterator<Entry> iterator = this.entries.values().iterator();
+        while (this.size > this.capacity && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.references == 0 && entry.future.isDone() && !entry.future.isCompletedExceptionally()) {
+                iterator.remove();
+                this.size -= entry.size;
+                entry.future.join().close();
+            }
+        }
+    }
+
+    /**
+     * Returns the memory used by the cached images.
+     *
+     * @return The size in bytes.
+     */
+    public synchronized long getSize()
+    {
+        return this.size;
+    }
+
+    public synchronized int getHits()
+    {
+        return this.hits;
+    }
+
+    public synchronized int getMisses()
+    {
+        return this.misses;
+    }
+
+    /**
+     * Closes every cached image, acquired or not, and clears the cache.
+     */
+    @Override
+    public synchronized void close()
+    {
+        for (Entry entry : this.entries.values()) {
+            if (entry.future.isDone() && !entry.future.isCompletedExceptionally())
+                entry.future.join().close();
+        }
+        this.entries.clear();
+        this.size = 0L;
+    }
+
+    /**
+     * Represents an image loader.
+     *
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    @FunctionalInterface
+    public interface Loader
+    {
+        @NotNull BasicImage load() throws IOException;
+    }
+
+    private static class Entry
+    {
+        private final CompletableFuture<BasicImage> future = new CompletableFuture<>();
+        private int references = 0;
+        private long size = 0L;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.image;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents the header of an image: its size and how its pixels are stored.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ImageProvider#probe(java.io.InputStream)
+ */
+public class ImageInfo
+{
+    private final int width;
+    private final int height;
+    private final int bitDepth;
+    private final ColorType colorType;
+    private final boolean interlaced;
+
+    public ImageInfo(int width, int height, int bitDepth, @NotNull ColorType colorType, boolean interlaced)
+    {
+        this.width = width;
+        this.height = height;
+        this.bitDepth = bitDepth;
+        this.colorType = colorType;
+        this.interlaced = interlaced;
+    }
+
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    /**
+     * Returns the number of bits of each sample, or of each palette index for indexed images.
+     *
+     * @return The bit depth.
+     */
+    public int getBitDepth()
+    {
+        return this.bitDepth;
+    }
+
+    public @NotNull ColorType getColorType()
+    {
+        return this.colorType;
+    }
+
+    public boolean isInterlaced()
+    {
+        return this.interlaced;
+    }
+
+    /**
+     * Returns the number of bits used by a pixel in the encoded image data.
+     *
+     * @return The number of bits per pixel.
+     */
+    public int getBitsPerPixel()
+    {
+        return this.colorType.getChannels() * this.bitDepth;
+    }
+
+    /**
+     * Returns the memory used by the pixels of the image once decoded in the ARGB format.
+     *
+     * @return The size in bytes.
+     */
+    public long getDecodedSize()
+    {
+        return (long) this.width * this.height * 4L;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.width + "x" + this.height + " " + this.bitDepth + "-bit " + this.colorType + (this.interlaced ? " interlaced" : "");
+    }
+
+    /**
+     * Represents the PNG color types.
+     *
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    public enum ColorType
+    {
+        GRAY(0, 1),
+        RGB(2, 3),
+        INDEXED(3, 1),
+        GRAY_ALPHA(4, 2),
+        RGBA(6, 4);
+
+        private final int id;
+        private final int channels;
+
+        ColorType(int id, int channels)
+        {
+            this.id = id;
+            this.channels = channels;
+        }
+
+        /**
+         * Returns the identifier of the color type in the PNG header.
+         *
+         * @return The identifier.
+         */
+        public int getId()
+        {
+            return this.id;
+        }
+
+        public int getChannels()
+        {
+            return this.channels;
+        }
+
+        public boolean hasAlpha()
+        {
+            return this == GRAY_ALPHA || this == RGBA;
+        }
+
+        /**
+         * Returns the color type of the specified identifier.
+         *
+         * @param id The identifier in the PNG header.
+         * @return The color type, or null if the identifier is invalid.
+         */
+        public static ColorType byId(int id)
+        {
+            for (ColorType type : values()) {
+                if (type.id == id)
+                    return type;
+            }
+            return null;
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package me.lambdaurora.mcpatcherpatcher.image;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -39,4 +40,28 @@ public interface ImageProvider
      * @throws IOException If the image read failed.
      */
     @NotNull BasicImage readImage(@NotNull InputStream inputStream) throws IOException;
+
+    /**
+     * Reads the header of an image from an input stream, without decoding its pixels.
+     * <p>
+     * The default implementation reads the IHDR chunk of PNG images, at most 33 bytes are read from the stream.
+     *
+     * @param inputStream The input stream.
+     * @return The header of the image.
+     * @throws IOException If the header could not be read or if the image format is not supported.
+     */
+    default @NotNull ImageInfo probe(@NotNull InputStream inputStream) throws IOException
+    {
+        return PngDecoder.probe(inputStream);
+    }
+
+    /**
+     * Returns the PNG encoder used by the provided images.
+     *
+     * @return The PNG encoder, or null if the images are encoded by other means.
+     */
+    default @Nullable PngEncoder getEncoder()
+    {
+        return null;
+    }
 }
@@ -0,0 +1,491 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.image;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Represents a streaming PNG decoder.
+ * <p>
+ * The image data is inflated and unfiltered row by row and written into an image created by the caller,
+ * so the only pixel storage is the one of the decoded image.
+ * Every color type and bit depth is supported, as well as transparency chunks and interlacing.
+ * The decoded pixels are in the ARGB format, samples with more than 8 bits are truncated.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class PngDecoder
+{
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    /**
+     * The start X, start Y, X step and Y step of each Adam7 pass.
+     */
+    private static final int[][] ADAM7_PASSES = {{0, 0, 8, 8}, {4, 0, 8, 8}, {0, 4, 4, 8}, {2, 0, 4, 4}, {0, 2, 2, 4}, {1, 0, 2, 2}, {0, 1, 1, 2}};
+
+    private PngDecoder()
+    {
+        throw new UnsupportedOperationException("PngDecoder only contains static definitions.");
+    }
+
+    /**
+     * Reads the header of a PNG image, without reading the image data.
+     * <p>
+     * At most 33 bytes are read from the stream.
+     *
+     * @param inputStream The input stream, which is not closed.
+     * @return The header of the image.
+     * @throws IOException If the image is not a valid PNG image or could not be read.
+     */
+    public static @NotNull ImageInfo probe(@NotNull InputStream inputStream) throws IOException
+    {
+        DataInputStream in = new DataInputStream(inputStream);
+        readSignature(in);
+        int length = in.readInt();
+        if (!readType(in).equals("IHDR"))
+            throw new IOException("Missing IHDR chunk.");
+        if (length != 13)
+            throw new IOException("Invalid IHDR chunk length " + length + ".");
+        return readHeader(readChunk(in, "IHDR", length));
+    }
+
+    /**
+     * Decodes a PNG image.
+     *
+     * @param inputStream The input stream, which is not closed.
+     * @param factory The factory of the decoded image.
+     * @param <I> The type of the decoded image.
+     * @return The decoded image.
+     * @throws IOException If the image is not a valid PNG image or could not be read.
+     */
+    public static <I extends BasicImage> @NotNull I decode(@NotNull InputStream inputStream, @NotNull Factory<I> factory) throws IOException
+    {
+        DataInputStream in = new DataInputStream(inputStream);
+        readSignature(in);
+
+        ImageInfo header = null;
+        int[] palette = null;
+        byte[] transparency = null;
+        while (true) {
+            int length = in.readInt();
+            String type = readType(in);
+            if (length < 0)
+                throw new IOException("Invalid chunk length " + length + ".");
+            if (type.equals("IDAT")) {
+                if (header == null)
+                    throw new IOException("Missing IHDR chunk.");
+                if (header.getColorType() == ImageInfo.ColorType.INDEXED && palette == null)
+                    throw new IOException("Missing PLTE chunk.");
+                return decodeImage(new ImageDataInputStream(in, length), header, palette, transparency, factory);
+            } else if (type.equals("IEND")) {
+                throw new IOException("Missing IDAT chunk.");
+            }
+
+            if (type.equals("IHDR") || type.equals("PLTE") || type.equals("tRNS")) {
+                byte[] data = readChunk(in, type, length);
+                switch (type) {
+                    case "IHDR":
+                        header = readHeader(data);
+                        break;
+                    case "PLTE":
+                        palette = new int[length / 3];
+                        for (int i = 0; i < palette.length; i++) {
+                            palette[i] = 0xFF000000 | (data[i * 3] & 0xFF) << 16 | (data[i * 3 + 1] & 0xFF) << 8 | data[i * 3 + 2] & 0xFF;
+                        }
+                        break;
+                    default:
+                        transparency = data;
+                        break;
+                }
+            } else {
+                skipFully(in, length + 4L);
+            }
+        }
+    }
+
+    private static <I extends BasicImage> @NotNull I decodeImage(@NotNull InputStream imageData, @NotNull ImageInfo header, int[] palette, byte[] transparency,
+                                                                @NotNull Factory<I> factory) throws IOException
+    {
+        if (palette != null && transparency != null && header.getColorType() == ImageInfo.ColorType.INDEXED) {
+            for (int i = 0; i < transparency.length && i < palette.length; i++) {
+                palette[i] = (transparency[i] & 0xFF) << 24 | palette[i] & 0x00FFFFFF;
+            }
+        }
+
+        I image = factory.create(header.getWidth(), header.getHeight());
+        Inflater inflater = new Inflater();
+        try {
+            DataInputStream in = new DataInputStream(new InflaterInputStream(imageData, inflater, 65536));
+            RowConverter converter = new RowConverter(header, palette, transparency);
+            if (header.isInterlaced()) {
+                for (int[] pass : ADAM7_PASSES) {
+                    int passWidth = (header.getWidth() - pass[0] + pass[2] - 1) / pass[2];
+                    int passHeight = (header.getHeight() - pass[1] + pass[3] - 1) / pass[3];
+                    if (passWidth <= 0 || passHeight <= 0)
+                        continue;
+                    readRows(in, header, passWidth, passHeight, converter, (y, row) -> {
+                        for (int x = 0; x < passWidth; x++) {
+                            image.setPixelColor(pass[0] + x * pass[2], pass[1] + y * pass[3], row[x]);
+                        }
+                    });
+                }
+            } else {
+                readRows(in, header, header.getWidth(), header.getHeight(), converter, image::setRow);
+            }
+        } catch (IOException | RuntimeException e) {
+            image.close();
+            if (e instanceof EOFException)
+                throw new IOException("Truncated PNG image data.", e);
+            throw e;
+        } finally {
+            inflater.end();
+        }
+        return image;
+    }
+
+    private static void readRows(@NotNull DataInputStream in, @NotNull ImageInfo header, int width, int height, @NotNull RowConverter converter,
+                                 @NotNull RowWriter writer) throws IOException
+    {
+        int bytesPerPixel = Math.max(1, header.getBitsPerPixel() / 8);
+        int stride = (int) (((long) width * header.getBitsPerPixel() + 7) / 8);
+        byte[] previous = new byte[stride];
+        byte[] current = new byte[stride];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            int filter = in.readUnsignedByte();
+            in.readFully(current);
+            unfilter(filter, current, previous, bytesPerPixel);
+            converter.convert(current, row, width);
+            writer.write(y, row);
+
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+    }
+
+    private static void unfilter(int filter, byte[] current, byte[] previous, int bytesPerPixel) throws IOException
+    {
+        switch (filter) {
+            case 0:
+                break;
+            case 1:
+                for (int i = bytesPerPixel; i < current.length; i++) {
+                    current[i] += current[i - bytesPerPixel];
+                }
+                break;
+            case 2:
+                for (int i = 0; i < current.length; i++) {
+                    current[i] += previous[i];
+                }
+                break;
+            case 3:
+                for (int i = 0; i < current.length; i++) {
+                    int left = i >= bytesPerPixel ? current[i - bytesPerPixel] & 0xFF : 0;
+                    current[i] += (left + (previous[i] & 0xFF)) >>> 1;
+                }
+                break;
+            case 4:
+                for (int i = 0; i < current.length; i++) {
+                    int left = i >= bytesPerPixel ? current[i - bytesPerPixel] & 0xFF : 0;
+                    int upLeft = i >= bytesPerPixel ? previous[i - bytesPerPixel] & 0xFF : 0;
+                    current[i] += paeth(left, previous[i] & 0xFF, upLeft);
+                }
+                break;
+            default:
+                throw new IOException("Invalid filter type " + filter + ".");
+        }
+    }
+
+    private static int paeth(int a, int b, int c)
+    {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc)
+            return a;
+        return pb <= pc ? b : c;
+    }
+
+    private static void readSignature(@NotNull DataInputStream in) throws IOException
+    {
+        byte[] signature = new byte[SIGNATURE.length];
+        in.readFully(signature);
+        if (!Arrays.equals(signature, SIGNATURE))
+            throw new IOException("Not a PNG image.");
+    }
+
+    private static @NotNull ImageInfo readHeader(byte[] data) throws IOException
+    {
+        if (data.length != 13)
+            throw new IOException("Invalid IHDR chunk length " + data.length + ".");
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int width = in.readInt();
+        int height = in.readInt();
+        int bitDepth = in.readUnsignedByte();
+        int colorTypeId = in.readUnsignedByte();
+        int compression = in.readUnsignedByte();
+        int filter = in.readUnsignedByte();
+        int interlace = in.readUnsignedByte();
+
+        if (width <= 0 || height <= 0)
+            throw new IOException("Invalid image size " + width + "x" + height + ".");
+        if (compression != 0 || filter != 0 || interlace > 1)
+            throw new IOException("Unsupported compression, filter or interlace method.");
+        ImageInfo.ColorType colorType = ImageInfo.ColorType.byId(colorTypeId);
+        if (colorType == null)
+            throw new IOException("Invalid color type " + colorTypeId + ".");
+        boolean validDepth;
+        switch (colorType) {
+            case GRAY:
+                validDepth = bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16;
+                break;
+            case INDEXED:
+                validDepth = bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8;
+                break;
+            default:
+                validDepth = bitDepth == 8 || bitDepth == 16;
+                break;
+        }
+        if (!validDepth)
+            throw new IOException("Invalid bit depth " + bitDepth + " for color type " + colorType + ".");
+        return new ImageInfo(width, height, bitDepth, colorType, interlace == 1);
+    }
+
+    private static @NotNull String readType(@NotNull DataInputStream in) throws IOException
+    {
+        byte[] type = new byte[4];
+        in.readFully(type);
+        return new String(type, StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] readChunk(@NotNull DataInputStream in, @NotNull String type, int length) throws IOException
+    {
+        byte[] data = new byte[length];
+        in.readFully(data);
+        CRC32 crc = new CRC32();
+        crc.update(type.getBytes(StandardCharsets.US_ASCII));
+        crc.update(data);
+        if ((int) crc.getValue() != in.readInt())
+            throw new IOException("Invalid CRC of chunk " + type + ".");
+        return data;
+    }
+
+    private static void skipFully(@NotNull InputStream in, long count) throws IOException
+    {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0)
+                    throw new EOFException();
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Represents a factory of decoded images.
+     *
+     * @param <I> The type of the images.
+     * @version 1.0.0
+     * @since 1.0.0
+     */
+    @FunctionalInterface
+    public interface Factory<I extends BasicImage>
+    {
+        /**
+         * Creates an image, which is closed if the decoding fails.
+         *
+         * @param width The width of the image.
+         * @param height The height of the image.
+         * @return The image.
+         * @throws IOException If the image could not be created.
+         */
+        @NotNull I create(int width, int height) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter
+    {
+        void write(int y, int[] row);
+    }
+
+    /**
+     * Converts unfiltered rows to ARGB pixels.
+     */
+    private static class RowConverter
+    {
+        private final ImageInfo header;
+        private final int[] palette;
+        private final int transparentGray;
+        private final int transparentRed;
+        private final int transparentGreen;
+        private final int transparentBlue;
+
+        private RowConverter(@NotNull ImageInfo header, int[] palette, byte[] transparency)
+        {
+            this.header = header;
+            this.palette = palette;
+            boolean gray = header.getColorType() == ImageInfo.ColorType.GRAY;
+            boolean rgb = header.getColorType() == ImageInfo.ColorType.RGB;
+            boolean hasKey = transparency != null && (gray ? transparency.length >= 2 : rgb && transparency.length >= 6);
+            this.transparentGray = hasKey && gray ? readShort(transparency, 0) : -1;
+            this.transparentRed = hasKey && rgb ? readShort(transparency, 0) : -1;
+            this.transparentGreen = hasKey && rgb ? readShort(transparency, 2) : -1;
+            this.transparentBlue = hasKey && rgb ? readShort(transparency, 4) : -1;
+        }
+
+        private void convert(byte[] data, int[] row, int width) throws IOException
+        {
+            int depth = this.header.getBitDepth();
+            switch (this.header.getColorType()) {
+                case GRAY:
+                    for (int x = 0; x < width; x++) {
+                        int sample = this.sample(data, x);
+                        int gray = depth == 16 ? sample >>> 8 : sample * 255 / ((1 << depth) - 1);
+                        int alpha = sample == this.transparentGray ? 0 : 0xFF;
+                        row[x] = alpha << 24 | gray << 16 | gray << 8 | gray;
+                    }
+                    break;
+                case RGB:
+                    for (int x = 0, i = 0; x < width; x++, i += 3) {
+                        int red = this.sample(data, i);
+                        int green = this.sample(data, i + 1);
+                        int blue = this.sample(data, i + 2);
+                        int alpha = red == this.transparentRed && green == this.transparentGreen && blue == this.transparentBlue ? 0 : 0xFF;
+                        row[x] = alpha << 24 | this.to8Bit(red) << 16 | this.to8Bit(green) << 8 | this.to8Bit(blue);
+                    }
+                    break;
+                case INDEXED:
+                    for (int x = 0; x < width; x++) {
+                        int index = this.sample(data, x);
+                        if (index >= this.palette.length)
+                            throw new IOException("Invalid palette index " + index + ".");
+                        row[x] = this.palette[index];
+                    }
+                    break;
+                case GRAY_ALPHA:
+                    for (int x = 0, i = 0; x < width; x++, i += 2) {
+                        int gray = this.to8Bit(this.sample(data, i));
+                        row[x] = this.to8Bit(this.sample(data, i + 1)) << 24 | gray << 16 | gray << 8 | gray;
+                    }
+                    break;
+                default:
+                    for (int x = 0, i = 0; x < width; x++, i += 4) {
+                        row[x] = this.to8Bit(this.sample(data, i + 3)) << 24 | this.to8Bit(this.sample(data, i)) << 16
+                                | this.to8Bit(this.sample(data, i + 1)) << 8 | this.to8Bit(this.sample(data, i + 2));
+                    }
+                    break;
+            }
+        }
+
+        /**
+         * Returns the sample at the specified index of an unfiltered row.
+         *
+         * @param data The row.
+         * @param index The index of the sample.
+         * @return The sample, with its original bit depth.
+         */
+        private int sample(byte[] data, int index)
+        {
+            switch (this.header.getBitDepth()) {
+                case 16:
+                    return readShort(data, index * 2);
+                case 8:
+                    return data[index] & 0xFF;
+                default:
+                    int depth = this.header.getBitDepth();
+                    int bit = index * depth;
+                    return (data[bit >>> 3] >>> (8 - depth - (bit & 7))) & ((1 << depth) - 1);
+            }
+        }
+
+        private int to8Bit(int sample)
+        {
+            return this.header.getBitDepth() == 16 ? sample >>> 8 : sample;
+        }
+
+        private static int readShort(byte[] data, int offset)
+        {
+            return (data[offset] & 0xFF) << 8 | data[offset + 1] & 0xFF;
+        }
+    }
+
+    /**
+     * Represents the concatenated content of consecutive IDAT chunks.
+     */
+    private static class ImageDataInputStream extends InputStream
+    {
+        private final DataInputStream in;
+        private int remaining;
+        private boolean ended = false;
+
+        private ImageDataInputStream(@NotNull DataInputStream in, int length)
+        {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        private boolean nextChunk() throws IOException
+        {
+            while (this.remaining == 0 && !this.ended) {
+                // The CRC of the image data is not checked, the inflater and the row sizes already catch corrupted data.
+                this.in.readInt();
+                this.remaining = this.in.readInt();
+                if (this.remaining < 0)
+                    throw new IOException("Invalid chunk length " + this.remaining + ".");
+                if (!readType(this.in).equals("IDAT"))
+                    this.ended = true;
+            }
+            return !this.ended;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (!this.nextChunk())
+                return -1;
+            this.remaining--;
+            return this.in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (len == 0)
+                return 0;
+            if (!this.nextChunk())
+                return -1;
+            int read = this.in.read(b, off, Math.min(len, this.remaining));
+            if (read < 0)
+                throw new EOFException();
+            this.remaining -= read;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelZipOutputAccessorTest
+{
+    @TempDir
+    Path directory;
+
+    private static byte[] read(ZipFile zip, String name) throws IOException
+    {
+        ZipEntry entry = zip.getEntry(name);
+        assertNotNull(entry, name);
+        try (InputStream in = zip.getInputStream(entry)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ResourceAccessor.transferTo(in, out);
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    void entriesAreReadableByZipFile() throws IOException
+    {
+        byte[] text = String.join("\n", Collections.nCopies(200, "matchTiles=minecraft:stone")).getBytes(StandardCharsets.UTF_8);
+        byte[] noise = new byte[20000];
+        new Random(42).nextBytes(noise);
+
+        File file = this.directory.resolve("out.zip").toFile();
+        try (ParallelZipOutputAccessor accessor = new ParallelZipOutputAccessor(file, 4, Deflater.DEFAULT_COMPRESSION)) {
+            assertTrue(accessor.put("assets/minecraft/optifine/ctm/a.properties", text));
+            assertTrue(accessor.put("assets/minecraft/textures/noise.png", noise));
+            assertTrue(accessor.put("assets/minecraft/empty.txt", new byte[0]));
+            assertTrue(accessor.put("assets/minecraft/textures/\u00e9t\u00e9.png", noise));
+            assertFalse(accessor.put("assets/minecraft/empty.txt", text), "duplicate entries must be rejected");
+        }
+
+        try (ZipFile zip = new ZipFile(file, StandardCharsets.UTF_8)) {
+            assertEquals(4, zip.size());
+            assertArrayEquals(text, read(zip, "assets/minecraft/optifine/ctm/a.properties"));
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("assets/minecraft/optifine/ctm/a.properties").getMethod());
+            // Data which does not shrink is stored.
+            assertArrayEquals(noise, read(zip, "assets/minecraft/textures/noise.png"));
+            assertEquals(ZipEntry.STORED, zip.getEntry("assets/minecraft/textures/noise.png").getMethod());
+            assertArrayEquals(new byte[0], read(zip, "assets/minecraft/empty.txt"));
+            assertArrayEquals(noise, read(zip, "assets/minecraft/textures/\u00e9t\u00e9.png"));
+        }
+    }
+
+    @Test
+    void putCopiesTheCallerArray() throws IOException
+    {
+        byte[] data = "first".getBytes(StandardCharsets.UTF_8);
+        File file = this.directory.resolve("out.zip").toFile();
+        try (ParallelZipOutputAccessor accessor = new ParallelZipOutputAccessor(file, 1, Deflater.DEFAULT_COMPRESSION)) {
+            assertTrue(accessor.put("assets/minecraft/a.txt", data));
+            Arrays.fill(data, (byte) 0);
+        }
+
+        try (ZipFile zip = new ZipFile(file)) {
+            assertArrayEquals("first".getBytes(StandardCharsets.UTF_8), read(zip, "assets/minecraft/a.txt"));
+        }
+    }
+
+    @Test
+    void entriesKeepSubmissionOrder() throws IOException
+    {
+        File file = this.directory.resolve("out.zip").toFile();
+        try (ParallelZipOutputAccessor accessor = new ParallelZipOutputAccessor(file, 4, Deflater.BEST_COMPRESSION)) {
+            for (int i = 0; i < 100; i++)
+                accessor.put("assets/minecraft/" + i + ".txt", new byte[(100 - i) * 500]);
+        }
+
+        try (ZipFile zip = new ZipFile(file)) {
+            int[] order = zip.stream().mapToInt(entry -> Integer.parseInt(entry.getName().replaceAll("\\D", ""))).toArray();
+            int[] expected = new int[100];
+            Arrays.setAll(expected, i -> i);
+            assertArrayEquals(expected, order);
+        }
+    }
+
+    @Test
+    void zip64IsWrittenForManyEntries() throws IOException
+    {
+        int count = 0x10000 + 10;
+        byte[] data = "x".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+
+        Path file = this.directory.resolve("many.zip");
+        ParallelZipOutputAccessor.ZipWriter writer = new ParallelZipOutputAccessor.ZipWriter(new BufferedOutputStream(Files.newOutputStream(file)));
+        try {
+            for (int i = 0; i < count; i++)
+                writer.write(new ParallelZipOutputAccessor.ZipRecord("e" + i, RawEntry.STORED, crc.getValue(), data.length, data, data.length));
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+
+        // The ZIP64 end of central directory locator precedes the end of central directory record.
+        byte[] bytes = Files.readAllBytes(file);
+        int locator = bytes.length - 22 - 20;
+        assertEquals(0x07064b50, (bytes[locator] & 0xFF) | (bytes[locator + 1] & 0xFF) << 8 | (bytes[locator + 2] & 0xFF) << 16
+                | (bytes[locator + 3] & 0xFF) << 24);
+
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            assertEquals(count, zip.size());
+            assertArrayEquals(data, read(zip, "e0"));
+            assertArrayEquals(data, read(zip, "e" + (count - 1)));
+        }
+    }
+}
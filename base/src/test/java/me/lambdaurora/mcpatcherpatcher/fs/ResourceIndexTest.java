@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fs;
+
+import me.lambdaurora.mcpatcherpatcher.ResourceType;
+import org.aperlambda.lambdacommon.Identifier;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceIndexTest
+{
+    private static ResourceIndex index(String... paths)
+    {
+        ResourceIndex index = new ResourceIndex();
+        for (String path : paths)
+            index.add(path);
+        return index;
+    }
+
+    private static List<String> search(ResourceIndex index, String namespace, String prefix)
+    {
+        return index.searchIn(ResourceType.ASSETS, new Identifier(namespace, prefix)).map(Identifier::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    void addIgnoresNonResources()
+    {
+        ResourceIndex index = new ResourceIndex();
+        assertTrue(index.add("assets/minecraft/optifine/sky/world0/sky1.properties"));
+        assertFalse(index.add("pack.mcmeta"));
+        assertFalse(index.add("assetsminecraft/a.png"));
+        assertFalse(index.add("assets/minecraft"));
+        assertFalse(index.add("assets/minecraft/"));
+        assertFalse(index.add("assets/minecraft/optifine/"));
+        assertFalse(index.add("assets/minecraft/optifine/.DS_Store"));
+
+        assertTrue(index.has(ResourceType.ASSETS, new Identifier("minecraft", "optifine/sky/world0/sky1.properties")));
+        assertFalse(index.has(ResourceType.DATA, new Identifier("minecraft", "optifine/sky/world0/sky1.properties")));
+        assertEquals(Collections.singletonList("minecraft"), index.getNamespaces(ResourceType.ASSETS));
+        assertTrue(index.getNamespaces(ResourceType.DATA).isEmpty());
+    }
+
+    @Test
+    void searchInReturnsSortedPrefixRange()
+    {
+        ResourceIndex index = index(
+                "assets/minecraft/optifine/sky/world0/sky2.png",
+                "assets/minecraft/optifine/sky/world0/sky1.properties",
+                "assets/minecraft/optifine/sky/world1/sky1.properties",
+                "assets/minecraft/optifine/cit/a.properties",
+                "assets/minecraft/optifinf/b.png",
+                "assets/other/optifine/sky/world0/sky1.properties",
+                "data/minecraft/optifine/sky/world0/sky1.properties");
+
+        assertEquals(Arrays.asList("optifine/sky/world0/sky1.properties", "optifine/sky/world0/sky2.png", "optifine/sky/world1/sky1.properties"),
+                search(index, "minecraft", "optifine/sky"));
+        assertEquals(Collections.singletonList("optifine/sky/world0/sky1.properties"), search(index, "other", "optifine"));
+        assertTrue(search(index, "missing", "optifine").isEmpty());
+        assertEquals(4, search(index, "minecraft", "optifine").size());
+    }
+
+    @Test
+    void removeDropsEmptyNamespaces()
+    {
+        ResourceIndex index = index("assets/a/x.png", "assets/b/y.png");
+        assertTrue(index.remove(ResourceType.ASSETS, new Identifier("a", "x.png")));
+        assertFalse(index.remove(ResourceType.ASSETS, new Identifier("a", "x.png")));
+        assertFalse(index.has(ResourceType.ASSETS, new Identifier("a", "x.png")));
+        assertEquals(Collections.singletonList("b"), index.getNamespaces(ResourceType.ASSETS));
+    }
+
+    @Test
+    void removeAllRemovesDirectories()
+    {
+        ResourceIndex index = index(
+                "assets/minecraft/optifine/sky/world0/sky1.properties",
+                "assets/minecraft/optifine/sky/world0/sky1.png",
+                "assets/minecraft/optifine/sky/world01/sky1.png",
+                "assets/minecraft/optifine/cit/a.properties",
+                "assets/other/a.png",
+                "data/minecraft/a.json");
+
+        List<String> removed = index.removeAll("assets/minecraft/optifine/sky/world0");
+        Collections.sort(removed);
+        assertEquals(Arrays.asList("assets/minecraft/optifine/sky/world0/sky1.png", "assets/minecraft/optifine/sky/world0/sky1.properties"), removed);
+        // Siblings sharing the prefix of the directory name are kept.
+        assertTrue(index.has(ResourceType.ASSETS, new Identifier("minecraft", "optifine/sky/world01/sky1.png")));
+
+        assertEquals(Collections.singletonList("assets/minecraft/optifine/cit/a.properties"), index.removeAll("assets/minecraft/optifine/cit/a.properties"));
+        assertEquals(Collections.singletonList("assets/other/a.png"), index.removeAll("assets/other"));
+        assertEquals(Collections.singletonList("assets/minecraft"), index.getNamespaces(ResourceType.ASSETS).stream()
+                .map(namespace -> "assets/" + namespace).collect(Collectors.toList()));
+
+        assertEquals(Collections.singletonList("data/minecraft/a.json"), index.removeAll("data"));
+        assertTrue(index.getNamespaces(ResourceType.DATA).isEmpty());
+        assertTrue(index.removeAll("missing/path").isEmpty());
+    }
+
+    @Test
+    void clearRemovesEverything()
+    {
+        ResourceIndex index = index("assets/a/x.png", "data/b/y.json");
+        index.clear();
+        assertTrue(index.getNamespaces(ResourceType.ASSETS).isEmpty());
+        assertTrue(index.getNamespaces(ResourceType.DATA).isEmpty());
+        assertFalse(index.has(ResourceType.ASSETS, new Identifier("a", "x.png")));
+    }
+}
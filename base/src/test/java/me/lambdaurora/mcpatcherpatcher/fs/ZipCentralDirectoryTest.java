@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.zip.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipCentralDirectoryTest
+{
+    @TempDir
+    Path directory;
+
+    private static byte[] readAll(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResourceAccessor.transferTo(in, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] raw, long size) throws DataFormatException
+    {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(raw);
+            byte[] data = new byte[(int) size];
+            int length = 0;
+            while (length < data.length && !inflater.finished())
+                length += inflater.inflate(data, length, data.length - length);
+            assertEquals(size, length);
+            return data;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private Path writeSample() throws IOException
+    {
+        byte[] noise = new byte[4096];
+        new Random(7).nextBytes(noise);
+        byte[] text = String.join("\n", Collections.nCopies(100, "method=random")).getBytes(StandardCharsets.UTF_8);
+
+        Path file = this.directory.resolve("sample.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file), StandardCharsets.UTF_8)) {
+            out.setComment("A resource pack with an archive comment.");
+            out.putNextEntry(new ZipEntry("assets/"));
+            out.closeEntry();
+
+            ZipEntry deflated = new ZipEntry("assets/minecraft/optifine/random/entity/pig.properties");
+            deflated.setComment("An entry comment.");
+            // Adds an extended timestamp extra field.
+            deflated.setLastModifiedTime(FileTime.fromMillis(1_600_000_000_000L));
+            out.putNextEntry(deflated);
+            out.write(text);
+            out.closeEntry();
+
+            CRC32 crc = new CRC32();
+            crc.update(noise, 0, noise.length);
+            ZipEntry stored = new ZipEntry("assets/minecraft/textures/entity/pig/pig2.png");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(noise.length);
+            stored.setCrc(crc.getValue());
+            out.putNextEntry(stored);
+            out.write(noise);
+            out.closeEntry();
+        }
+        return file;
+    }
+
+    @Test
+    void entriesMatchZipFile() throws IOException, DataFormatException
+    {
+        Path file = this.writeSample();
+
+        ZipCentralDirectory central;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             ZipFile zip = new ZipFile(file.toFile())) {
+            central = ZipCentralDirectory.read(channel);
+            assertEquals(zip.size(), central.getEntries().size());
+
+            Enumeration<? extends ZipEntry> expected = zip.entries();
+            for (ZipCentralDirectory.Entry entry : central.getEntries()) {
+                ZipEntry zipEntry = expected.nextElement();
+                assertEquals(zipEntry.getName(), entry.name);
+                assertSame(entry, central.get(entry.name));
+                assertEquals(zipEntry.isDirectory(), entry.isDirectory());
+                assertFalse(entry.isEncrypted());
+                assertEquals(zipEntry.getMethod(), entry.method);
+                assertEquals(zipEntry.getCrc(), entry.crc);
+                assertEquals(zipEntry.getSize(), entry.size);
+                assertEquals(zipEntry.getCompressedSize(), entry.compressedSize);
+
+                byte[] data;
+                try (InputStream in = zip.getInputStream(zipEntry)) {
+                    data = readAll(in);
+                }
+                byte[] raw = entry.readRaw(channel);
+                assertArrayEquals(data, entry.method == ZipEntry.DEFLATED ? inflate(raw, entry.size) : raw, entry.name);
+            }
+        }
+        assertNull(central.get("missing"));
+    }
+
+    @Test
+    void zip64EntryCountIsRead() throws IOException
+    {
+        int count = 0x10000 + 10;
+        byte[] data = "x".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+
+        Path file = this.directory.resolve("many.zip");
+        ParallelZipOutputAccessor.ZipWriter writer = new ParallelZipOutputAccessor.ZipWriter(Files.newOutputStream(file));
+        try {
+            for (int i = 0; i < count; i++)
+                writer.write(new ParallelZipOutputAccessor.ZipRecord("e" + i, RawEntry.STORED, crc.getValue(), data.length, data, data.length));
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ZipCentralDirectory central = ZipCentralDirectory.read(channel);
+            assertEquals(count, central.getEntries().size());
+            ZipCentralDirectory.Entry last = central.get("e" + (count - 1));
+            assertNotNull(last);
+            assertArrayEquals(data, last.readRaw(channel));
+        }
+    }
+
+    @Test
+    void invalidFilesAreRejected() throws IOException
+    {
+        Path file = this.directory.resolve("invalid.zip");
+        Files.write(file, "not a zip file".getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThrows(ZipException.class, () -> ZipCentralDirectory.read(channel));
+        }
+
+        // Without its first bytes, the offsets of the archive point outside of the file.
+        byte[] sample = Files.readAllBytes(this.writeSample());
+        byte[] truncated = new byte[sample.length - 200];
+        System.arraycopy(sample, 200, truncated, 0, truncated.length);
+        Files.write(file, truncated);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThrows(ZipException.class, () -> ZipCentralDirectory.read(channel));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.image;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageBufferPoolTest
+{
+    private final List<int[]> disposed = new ArrayList<>();
+    private final ImageBufferPool.Format<int[]> format = new ImageBufferPool.Format<>("test", 4, (width, height) -> new int[width * height],
+            this.disposed::add);
+
+    @Test
+    void releasedBuffersAreReused()
+    {
+        ImageBufferPool pool = new ImageBufferPool(1024L);
+        int[] buffer = pool.acquire(this.format, 4, 4);
+        pool.release(this.format, 4, 4, buffer);
+        assertEquals(64L, pool.getSize());
+
+        assertSame(buffer, pool.acquire(this.format, 4, 4));
+        assertEquals(0L, pool.getSize());
+        // Another size, or another format of the same size, does not reuse the buffer.
+        pool.release(this.format, 4, 4, buffer);
+        assertNotSame(buffer, pool.acquire(this.format, 2, 8));
+        ImageBufferPool.Format<int[]> other = new ImageBufferPool.Format<>("other", 4, (width, height) -> new int[width * height]);
+        assertNotSame(buffer, pool.acquire(other, 4, 4));
+
+        assertEquals(3L, pool.getAllocations());
+        assertEquals(1L, pool.getReuses());
+        assertEquals(0L, pool.getDiscards());
+        assertTrue(this.disposed.isEmpty());
+    }
+
+    @Test
+    void leastRecentlyUsedSizesAreDisposed()
+    {
+        ImageBufferPool pool = new ImageBufferPool(128L);
+        int[] a = pool.acquire(this.format, 4, 4);
+        int[] b = pool.acquire(this.format, 8, 2);
+        int[] c = pool.acquire(this.format, 16, 1);
+        pool.release(this.format, 4, 4, a);
+        pool.release(this.format, 8, 2, b);
+        // Makes the 4x4 size more recently used than the 8x2 size.
+        assertSame(a, pool.acquire(this.format, 4, 4));
+        pool.release(this.format, 4, 4, a);
+
+        pool.release(this.format, 16, 1, c);
+        assertEquals(1, this.disposed.size());
+        assertSame(b, this.disposed.get(0));
+        assertEquals(1L, pool.getDiscards());
+        assertEquals(128L, pool.getSize());
+        assertSame(a, pool.acquire(this.format, 4, 4));
+        assertSame(c, pool.acquire(this.format, 16, 1));
+    }
+
+    @Test
+    void buffersLargerThanThePoolAreDisposed()
+    {
+        ImageBufferPool pool = new ImageBufferPool(63L);
+        int[] buffer = pool.acquire(this.format, 4, 4);
+        pool.release(this.format, 4, 4, buffer);
+        assertSame(buffer, this.disposed.get(0));
+        assertEquals(0L, pool.getSize());
+        assertEquals(1L, pool.getDiscards());
+        assertNotSame(buffer, pool.acquire(this.format, 4, 4));
+    }
+
+    @Test
+    void clearDisposesEveryBuffer()
+    {
+        ImageBufferPool pool = new ImageBufferPool(1024L);
+        int[] a = pool.acquire(this.format, 4, 4);
+        int[] b = pool.acquire(this.format, 4, 4);
+        int[] c = pool.acquire(this.format, 2, 2);
+        pool.release(this.format, 4, 4, a);
+        pool.release(this.format, 4, 4, b);
+        pool.release(this.format, 2, 2, c);
+
+        pool.clear();
+        assertEquals(3, this.disposed.size());
+        assertTrue(this.disposed.contains(a) && this.disposed.contains(b) && this.disposed.contains(c));
+        assertEquals(0L, pool.getSize());
+        assertNotSame(a, pool.acquire(this.format, 4, 4));
+    }
+
+    @Test
+    void decodedImagesReuseBuffers() throws IOException
+    {
+        BufferedImage source = PngEncoderTest.createImage(24, 16, 4L);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(source, "png", png);
+
+        ImageBufferPool pool = new ImageBufferPool();
+        BufferedImageProvider provider = new BufferedImageProvider(PngEncoder.FAST, pool);
+        for (int i = 0; i < 3; i++) {
+            BasicImage image = provider.readImage(new ByteArrayInputStream(png.toByteArray()));
+            assertEquals(source.getRGB(5, 7), image.getPixelColor(5, 7));
+            image.close();
+        }
+        // The RGBA destination of the reader and the ARGB image are allocated once, then reused.
+        assertEquals(2L, pool.getAllocations());
+        assertEquals(4L, pool.getReuses());
+    }
+}
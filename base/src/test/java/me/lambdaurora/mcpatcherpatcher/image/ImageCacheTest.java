@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageCacheTest
+{
+    /**
+     * The memory used by a 4x4 image.
+     */
+    private static final long IMAGE_SIZE = 4 * 4 * 4;
+
+    private static class TrackedImage extends BasicBufferedImage
+    {
+        private boolean closed = false;
+
+        private TrackedImage()
+        {
+            super(new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB));
+        }
+
+        @Override
+        public synchronized void close()
+        {
+            assertFalse(this.closed, "images must be closed once");
+            this.closed = true;
+            super.close();
+        }
+    }
+
+    private static TrackedImage acquire(ImageCache<String> cache, String key) throws IOException
+    {
+        return (TrackedImage) cache.acquire(key, TrackedImage::new);
+    }
+
+    @Test
+    void loadsAreShared() throws IOException
+    {
+        ImageCache<String> cache = new ImageCache<>(IMAGE_SIZE * 4);
+        AtomicInteger loads = new AtomicInteger();
+        ImageCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            return new TrackedImage();
+        };
+
+        BasicImage first = cache.acquire("a", loader);
+        BasicImage second = cache.acquire("a", loader);
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(IMAGE_SIZE, cache.getSize());
+
+        cache.release("a");
+        cache.release("a");
+        assertThrows(IllegalStateException.class, () -> cache.release("a"));
+        assertThrows(IllegalStateException.class, () -> cache.release("missing"));
+    }
+
+    @Test
+    void leastRecentlyUsedImagesAreEvicted() throws IOException
+    {
+        ImageCache<String> cache = new ImageCache<>(IMAGE_SIZE * 2);
+        TrackedImage a = acquire(cache, "a");
+        cache.release("a");
+        TrackedImage b = acquire(cache, "b");
+        cache.release("b");
+        // Makes a more recently used than b.
+        assertSame(a, acquire(cache, "a"));
+        cache.release("a");
+
+        TrackedImage c = acquire(cache, "c");
+        cache.release("c");
+        assertTrue(b.closed);
+        assertFalse(a.closed);
+        assertFalse(c.closed);
+        assertEquals(IMAGE_SIZE * 2, cache.getSize());
+
+        // The evicted image is loaded again.
+        TrackedImage reloaded = acquire(cache, "b");
+        assertNotSame(b, reloaded);
+        cache.release("b");
+        assertTrue(a.closed);
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    void acquiredImagesAreNotEvicted() throws IOException
+    {
+        ImageCache<String> cache = new ImageCache<>(0L);
+        TrackedImage a = acquire(cache, "a");
+        TrackedImage b = acquire(cache, "b");
+        cache.release("b");
+        assertTrue(b.closed);
+        assertFalse(a.closed);
+        assertEquals(IMAGE_SIZE, cache.getSize());
+
+        assertThrows(IllegalStateException.class, () -> cache.invalidate("a"));
+        cache.release("a");
+        assertTrue(a.closed);
+        assertEquals(0L, cache.getSize());
+    }
+
+    @Test
+    void failedLoadsAreRemembered() throws IOException
+    {
+        ImageCache<String> cache = new ImageCache<>(IMAGE_SIZE);
+        AtomicInteger loads = new AtomicInteger();
+        ImageCache.Loader failing = () -> {
+            loads.incrementAndGet();
+            throw new IOException("Broken texture.");
+        };
+
+        assertEquals("Broken texture.", assertThrows(IOException.class, () -> cache.acquire("a", failing)).getMessage());
+        assertThrows(IOException.class, () -> cache.acquire("a", failing));
+        assertEquals(1, loads.get());
+
+        cache.invalidate("a");
+        TrackedImage image = acquire(cache, "a");
+        cache.release("a");
+        assertFalse(image.closed);
+    }
+
+    @Test
+    void invalidateAndCloseCloseImages() throws IOException
+    {
+        ImageCache<String> cache = new ImageCache<>(IMAGE_SIZE * 4);
+        TrackedImage a = acquire(cache, "a");
+        cache.release("a");
+        cache.invalidate("a");
+        assertTrue(a.closed);
+        assertEquals(0L, cache.getSize());
+        cache.invalidate("missing");
+
+        TrackedImage b = acquire(cache, "b");
+        TrackedImage c = acquire(cache, "c");
+        cache.release("c");
+        cache.close();
+        assertTrue(b.closed);
+        assertTrue(c.closed);
+        assertEquals(0L, cache.getSize());
+    }
+}
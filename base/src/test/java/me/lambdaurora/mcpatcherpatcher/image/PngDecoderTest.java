@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.image;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PngDecoderTest
+{
+    private static final PngDecoder.Factory<BasicBufferedImage> FACTORY =
+            (width, height) -> new BasicBufferedImage(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+
+    /**
+     * Writes a PNG image with ImageIO, which picks the filter of each row.
+     *
+     * @param image The image.
+     * @param interlaced True to write an Adam7 interlaced image, else false.
+     * @return The PNG bytes.
+     */
+    private static byte[] write(BufferedImage image, boolean interlaced) throws IOException
+    {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setProgressiveMode(interlaced ? ImageWriteParam.MODE_DEFAULT : ImageWriteParam.MODE_DISABLED);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static BasicBufferedImage decode(byte[] png) throws IOException
+    {
+        return PngDecoder.decode(new ByteArrayInputStream(png), FACTORY);
+    }
+
+    private static void assertPixels(BufferedImage expected, BasicImage actual)
+    {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getPixelColor(x, y))
+                    fail(String.format("Pixel (%d, %d): expected %08x but was %08x", x, y, expected.getRGB(x, y), actual.getPixelColor(x, y)));
+            }
+        }
+    }
+
+    /**
+     * Checks an image decoded by PngDecoder against the same image decoded by ImageIO.
+     */
+    private static void assertDecodedLikeImageIO(BufferedImage image) throws IOException
+    {
+        for (boolean interlaced : new boolean[]{false, true}) {
+            byte[] png = write(image, interlaced);
+            assertEquals(interlaced, PngDecoder.probe(new ByteArrayInputStream(png)).isInterlaced());
+            assertPixels(ImageIO.read(new ByteArrayInputStream(png)), decode(png));
+        }
+    }
+
+    @Test
+    void rgbaImagesAreDecoded() throws IOException
+    {
+        for (int[] size : new int[][]{{1, 1}, {3, 5}, {8, 8}, {9, 9}, {33, 17}}) {
+            assertDecodedLikeImageIO(PngEncoderTest.createImage(size[0], size[1], size[0] * 31L + size[1]));
+        }
+    }
+
+    @Test
+    void rgbImagesAreDecoded() throws IOException
+    {
+        BufferedImage source = PngEncoderTest.createImage(37, 23, 2L);
+        BufferedImage image = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, source.getWidth(), source.getHeight(), source.getRGB(0, 0, source.getWidth(), source.getHeight(), null, 0, source.getWidth()),
+                0, source.getWidth());
+        assertDecodedLikeImageIO(image);
+    }
+
+    @Test
+    void lowBitDepthImagesAreDecoded() throws IOException
+    {
+        // 4-bit palette with a translucent and a transparent color, written with a tRNS chunk.
+        byte[] red = {(byte) 255, 0, 0, 12, (byte) 200};
+        byte[] green = {0, (byte) 255, 0, 34, (byte) 100};
+        byte[] blue = {0, 0, (byte) 255, 56, 0};
+        byte[] alpha = {(byte) 255, (byte) 255, (byte) 128, 0, (byte) 255};
+        IndexColorModel colorModel = new IndexColorModel(4, 5, red, green, blue, alpha);
+        BufferedImage image = new BufferedImage(19, 11, BufferedImage.TYPE_BYTE_BINARY, colorModel);
+        Random random = new Random(11L);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++)
+                image.getRaster().setSample(x, y, 0, random.nextInt(5));
+        }
+        assertDecodedLikeImageIO(image);
+
+        // Written as a 1-bit gray image.
+        BufferedImage binary = new BufferedImage(21, 7, BufferedImage.TYPE_BYTE_BINARY);
+        for (int y = 0; y < binary.getHeight(); y++) {
+            for (int x = 0; x < binary.getWidth(); x++)
+                binary.getRaster().setSample(x, y, 0, (x * y + x) & 1);
+        }
+        assertDecodedLikeImageIO(binary);
+    }
+
+    @Test
+    void grayImagesAreDecoded() throws IOException
+    {
+        // ImageIO converts gray to RGB through a linear color space, the raw samples are compared instead.
+        BufferedImage gray = new BufferedImage(17, 13, BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage gray16 = new BufferedImage(17, 13, BufferedImage.TYPE_USHORT_GRAY);
+        for (int y = 0; y < gray.getHeight(); y++) {
+            for (int x = 0; x < gray.getWidth(); x++) {
+                gray.getRaster().setSample(x, y, 0, (x * 15 + y * 3) & 0xFF);
+                gray16.getRaster().setSample(x, y, 0, (x * 3851 + y * 977) & 0xFFFF);
+            }
+        }
+
+        for (boolean interlaced : new boolean[]{false, true}) {
+            BasicImage decoded = decode(write(gray, interlaced));
+            BasicImage decoded16 = decode(write(gray16, interlaced));
+            for (int y = 0; y < gray.getHeight(); y++) {
+                for (int x = 0; x < gray.getWidth(); x++) {
+                    int sample = gray.getRaster().getSample(x, y, 0);
+                    assertEquals(0xFF000000 | sample << 16 | sample << 8 | sample, decoded.getPixelColor(x, y));
+                    int sample16 = gray16.getRaster().getSample(x, y, 0) >>> 8;
+                    assertEquals(0xFF000000 | sample16 << 16 | sample16 << 8 | sample16, decoded16.getPixelColor(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    void sixteenBitImagesAreDecoded() throws IOException
+    {
+        ComponentColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), true, false,
+                Transparency.TRANSLUCENT, DataBuffer.TYPE_USHORT);
+        WritableRaster raster = colorModel.createCompatibleWritableRaster(13, 9);
+        Random random = new Random(16L);
+        int[] samples = new int[4];
+        for (int y = 0; y < raster.getHeight(); y++) {
+            for (int x = 0; x < raster.getWidth(); x++) {
+                Arrays.setAll(samples, i -> random.nextInt(0x10000));
+                raster.setPixel(x, y, samples);
+            }
+        }
+        BufferedImage image = new BufferedImage(colorModel, raster, false, null);
+
+        for (boolean interlaced : new boolean[]{false, true}) {
+            BasicImage decoded = decode(write(image, interlaced));
+            for (int y = 0; y < raster.getHeight(); y++) {
+                for (int x = 0; x < raster.getWidth(); x++) {
+                    raster.getPixel(x, y, samples);
+                    int expected = (samples[3] >>> 8) << 24 | (samples[0] >>> 8) << 16 | (samples[1] >>> 8) << 8 | samples[2] >>> 8;
+                    assertEquals(expected, decoded.getPixelColor(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    void everyFilterOfPngEncoderIsDecoded() throws IOException
+    {
+        BufferedImage image = PngEncoderTest.createImage(45, 29, 8L);
+        for (PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+            assertPixels(image, decode(new PngEncoder(Deflater.DEFAULT_COMPRESSION, filter).encode(image)));
+        }
+    }
+
+    @Test
+    void invalidImagesAreRejected() throws IOException
+    {
+        assertThrows(IOException.class, () -> decode("not a png image".getBytes()));
+
+        byte[] png = write(PngEncoderTest.createImage(16, 16, 1L), false);
+        assertThrows(IOException.class, () -> decode(Arrays.copyOf(png, png.length / 2)));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.image;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PngEncoderTest
+{
+    /**
+     * Creates an image mixing noise, gradients and fully transparent pixels with a color, so that every filter is useful somewhere.
+     */
+    static BufferedImage createImage(int width, int height, long seed)
+    {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int color;
+                switch ((x / 4 + y / 4) % 3) {
+                    case 0:
+                        color = random.nextInt();
+                        break;
+                    case 1:
+                        color = 0xFF000000 | (x * 7) << 16 | (y * 5) << 8 | (x + y);
+                        break;
+                    default:
+                        color = random.nextInt() & 0x00FFFFFF;
+                        break;
+                }
+                image.setRGB(x, y, color);
+            }
+        }
+        return image;
+    }
+
+    static void assertSamePixels(BufferedImage expected, BufferedImage actual)
+    {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y))
+                    fail(String.format("Pixel (%d, %d): expected %08x but was %08x", x, y, expected.getRGB(x, y), actual.getRGB(x, y)));
+            }
+        }
+    }
+
+    private static BufferedImage read(byte[] png) throws IOException
+    {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertNotNull(image);
+        return image;
+    }
+
+    @Test
+    void everyFilterIsDecodedByImageIO() throws IOException
+    {
+        BufferedImage image = createImage(67, 41, 13L);
+        for (PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+            for (int level : new int[]{Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION}) {
+                assertSamePixels(image, read(new PngEncoder(level, filter).encode(image)));
+            }
+        }
+    }
+
+    @Test
+    void basicImagesAreEncoded() throws IOException
+    {
+        BufferedImage image = createImage(32, 48, 5L);
+        for (PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+            BasicImage basicImage = new BasicBufferedImage(image);
+            assertSamePixels(image, read(new PngEncoder(Deflater.DEFAULT_COMPRESSION, filter).encode(basicImage)));
+        }
+    }
+
+    @Test
+    void subImagesAndOtherTypesAreEncoded() throws IOException
+    {
+        BufferedImage image = createImage(64, 64, 21L);
+        // Raster with an offset and a scanline stride larger than its width.
+        BufferedImage subImage = image.getSubimage(5, 9, 31, 17);
+        assertSamePixels(subImage, read(PngEncoder.DEFAULT.encode(subImage)));
+
+        BufferedImage abgr = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
+        abgr.setRGB(0, 0, image.getWidth(), image.getHeight(), image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth()),
+                0, image.getWidth());
+        assertSamePixels(abgr, read(PngEncoder.DEFAULT.encode(abgr)));
+    }
+
+    @Test
+    void smallestIsNeverLarger() throws IOException
+    {
+        BufferedImage image = createImage(96, 64, 3L);
+        int smallest = PngEncoder.SMALL.encode(image).length;
+        assertTrue(smallest <= new PngEncoder(Deflater.BEST_COMPRESSION, PngEncoder.Filter.NONE).encode(image).length);
+        assertTrue(smallest <= new PngEncoder(Deflater.BEST_COMPRESSION, PngEncoder.Filter.ADAPTIVE).encode(image).length);
+    }
+
+    @Test
+    void invalidLevelsAreRejected()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new PngEncoder(10, PngEncoder.Filter.NONE));
+        assertThrows(IllegalArgumentException.class, () -> new PngEncoder(-2, PngEncoder.Filter.NONE));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.benchmark;
+
+import me.lambdaurora.mcpatcherpatcher.ResourceType;
+import me.lambdaurora.mcpatcherpatcher.converter.CETConverter;
+import me.lambdaurora.mcpatcherpatcher.fs.CloseableResourceAccessor;
+import me.lambdaurora.mcpatcherpatcher.fs.FileAccessor;
+import me.lambdaurora.mcpatcherpatcher.fs.MappedZipAccessor;
+import me.lambdaurora.mcpatcherpatcher.fs.ResourceAccessor;
+import me.lambdaurora.mcpatcherpatcher.fs.ZipAccessor;
+import org.aperlambda.lambdacommon.Identifier;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the lookup paths of the resource accessors over a generated pack.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccessorBenchmark
+{
+    @Param({"32", "256", "1024"})
+    public int packSize;
+
+    @Param({"zip", "mapped", "directory"})
+    public String accessor;
+
+    private File directory;
+    private ResourceAccessor input;
+    private Identifier parent;
+    private Identifier present;
+    private Identifier missing;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        this.directory = Files.createTempDirectory("mcpp-bench").toFile();
+        File pack = new File(this.directory, "pack.zip");
+        PackGenerator.generate(pack, this.packSize);
+        if (this.accessor.equals("zip")) {
+            this.input = new ZipAccessor(pack);
+        } else if (this.accessor.equals("mapped")) {
+            this.input = new MappedZipAccessor(pack);
+        } else {
+            File extracted = new File(this.directory, "pack");
+            PackGenerator.extract(pack, extracted);
+            this.input = new FileAccessor(extracted);
+        }
+
+        this.parent = new Identifier("minecraft", CETConverter.CET_PARENT);
+        this.present = new Identifier("minecraft", CETConverter.CET_PARENT + "/entity/entity" + (this.packSize / 2) + "/mob2.png");
+        this.missing = new Identifier("minecraft", CETConverter.CET_PARENT + "/entity/entity" + (this.packSize / 2) + "/mob9.png");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        if (this.input instanceof CloseableResourceAccessor)
+            ((CloseableResourceAccessor) this.input).close();
+        PackGenerator.delete(this.directory);
+    }
+
+    @Benchmark
+    public boolean hasPresent()
+    {
+        return this.input.has(ResourceType.ASSETS, this.present);
+    }
+
+    @Benchmark
+    public boolean hasMissing()
+    {
+        return this.input.has(ResourceType.ASSETS, this.missing);
+    }
+
+    @Benchmark
+    public long searchIn()
+    {
+        return this.input.searchIn(ResourceType.ASSETS, this.parent).count();
+    }
+
+    @Benchmark
+    public void getNamespaces(@NotNull Blackhole blackhole)
+    {
+        blackhole.consume(this.input.getNamespaces(ResourceType.ASSETS));
+    }
+
+    @Benchmark
+    public long read() throws IOException
+    {
+        try (InputStream in = this.input.getInputStream(ResourceType.ASSETS, this.present)) {
+            long read = 0;
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = in.read(buffer)) != -1)
+                read += length;
+            return read;
+        }
+    }
+}
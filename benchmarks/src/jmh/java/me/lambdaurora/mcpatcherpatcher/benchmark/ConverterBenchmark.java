@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.benchmark;
+
+import me.lambdaurora.mcpatcherpatcher.Closeable;
+import me.lambdaurora.mcpatcherpatcher.converter.CETConverter;
+import me.lambdaurora.mcpatcherpatcher.converter.Converter;
+import me.lambdaurora.mcpatcherpatcher.converter.RETConverter;
+import me.lambdaurora.mcpatcherpatcher.converter.SkyConverter;
+import me.lambdaurora.mcpatcherpatcher.fs.ZipAccessor;
+import me.lambdaurora.mcpatcherpatcher.image.BufferedImageProvider;
+import me.lambdaurora.mcpatcherpatcher.image.ImageProvider;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks each converter over a generated pack.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConverterBenchmark
+{
+    @Param({"32", "256", "1024"})
+    public int packSize;
+
+    private final ImageProvider imageProvider = new BufferedImageProvider();
+    private File directory;
+    private ZipAccessor input;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        this.directory = Files.createTempDirectory("mcpp-bench").toFile();
+        File pack = new File(this.directory, "pack.zip");
+        PackGenerator.generate(pack, this.packSize);
+        this.input = new ZipAccessor(pack);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        this.input.close();
+        PackGenerator.delete(this.directory);
+    }
+
+    @Benchmark
+    public void cet(@NotNull Blackhole blackhole)
+    {
+        DiscardingAccessor output = new DiscardingAccessor();
+        this.run(new CETConverter(this.input, output), blackhole);
+        blackhole.consume(output.getBytes());
+    }
+
+    @Benchmark
+    public void ret(@NotNull Blackhole blackhole)
+    {
+        DiscardingAccessor output = new DiscardingAccessor();
+        this.run(new RETConverter(this.input, output), blackhole);
+        blackhole.consume(output.getBytes());
+    }
+
+    @Benchmark
+    public void sky(@NotNull Blackhole blackhole)
+    {
+        DiscardingAccessor output = new DiscardingAccessor();
+        this.run(new SkyConverter(this.input, output), blackhole);
+        blackhole.consume(output.getBytes());
+    }
+
+    private void run(@NotNull Converter converter, @NotNull Blackhole blackhole)
+    {
+        blackhole.consume(converter.convert(this.imageProvider));
+        if (converter instanceof Closeable)
+            ((Closeable) converter).close();
+    }
+}
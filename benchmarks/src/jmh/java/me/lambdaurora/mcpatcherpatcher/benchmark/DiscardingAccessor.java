@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.benchmark;
+
+import me.lambdaurora.mcpatcherpatcher.ResourceType;
+import me.lambdaurora.mcpatcherpatcher.fs.ResourceAccessor;
+import org.aperlambda.lambdacommon.Identifier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+/**
+ * Represents an output resource accessor which discards everything written to it.
+ * <p>
+ * Keeps the benchmarks focused on the conversion itself rather than on the output file system.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class DiscardingAccessor implements ResourceAccessor
+{
+    private long bytes = 0L;
+    private int entries = 0;
+
+    @Override
+    public boolean has(@NotNull ResourceType type, @NotNull Identifier identifier)
+    {
+        return false;
+    }
+
+    @Override
+    public @NotNull Stream<Identifier> searchIn(@NotNull ResourceType type, @NotNull Identifier parent)
+    {
+        return Stream.empty();
+    }
+
+    @Override
+    public @Nullable InputStream getInputStream(@NotNull String path)
+    {
+        return null;
+    }
+
+    @Override
+    public @NotNull Collection<String> getNamespaces(@NotNull ResourceType type)
+    {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public synchronized boolean put(@NotNull String path, @NotNull byte[] out)
+    {
+        this.bytes += out.length;
+        this.entries++;
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes written to this accessor.
+     *
+     * @return The number of bytes.
+     */
+    public synchronized long getBytes()
+    {
+        return this.bytes;
+    }
+
+    public synchronized int getEntries()
+    {
+        return this.entries;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.benchmark;
+
+import me.lambdaurora.mcpatcherpatcher.image.BasicBufferedImage;
+import me.lambdaurora.mcpatcherpatcher.image.BasicImage;
+import me.lambdaurora.mcpatcherpatcher.image.PngEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the image paths used by the sky conversion: cutting a face out of a sky texture and encoding it.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ImageBenchmark
+{
+    @Param({"64", "256", "1024"})
+    public int faceSize;
+
+    private BasicImage sky;
+    private BasicImage face;
+    private BasicImage target;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        this.sky = new BasicBufferedImage(PackGenerator.image(new Random(this.faceSize), this.faceSize * 3, this.faceSize * 2));
+        this.face = this.sky.getSubImage(this.faceSize, this.faceSize, this.faceSize, this.faceSize);
+        this.target = new BasicBufferedImage(new BufferedImage(this.faceSize, this.faceSize, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        this.target.close();
+        this.face.close();
+        this.sky.close();
+    }
+
+    @Benchmark
+    public BasicImage getSubImage()
+    {
+        return this.sky.getSubImage(this.faceSize * 2, this.faceSize, this.faceSize, this.faceSize);
+    }
+
+    @Benchmark
+    public BasicImage copyRect()
+    {
+        this.sky.copyRect(this.faceSize * 2, this.faceSize, this.target, 0, 0, this.faceSize, this.faceSize);
+        return this.target;
+    }
+
+    @Benchmark
+    public byte[] getBytes()
+    {
+        return this.face.getBytes();
+    }
+
+    @Benchmark
+    public byte[] encodeFast() throws IOException
+    {
+        return PngEncoder.FAST.encode(this.face);
+    }
+
+    @Benchmark
+    public byte[] encodeSmall() throws IOException
+    {
+        return PngEncoder.SMALL.encode(this.face);
+    }
+
+    @Benchmark
+    public byte[] getSubImageBytes()
+    {
+        BasicImage face = this.sky.getSubImage(this.faceSize * 2, 0, this.faceSize, this.faceSize);
+        byte[] bytes = face.getBytes();
+        face.close();
+        return bytes;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.benchmark;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates synthetic MCPatcher/OptiFine resource packs for the benchmarks.
+ * <p>
+ * The generated packs are deterministic for a given size: half of the entities get a CET properties file with
+ * variant textures, the other half only get RET textures, and one sky layer is generated every 16 entities.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class PackGenerator
+{
+    private static final long SEED = 0x4d435050L;
+    private static final int ENTITY_TEXTURE_SIZE = 64;
+    private static final int SKY_FACE_SIZE = 128;
+
+    private PackGenerator()
+    {
+        throw new UnsupportedOperationException("PackGenerator only contains static definitions.");
+    }
+
+    /**
+     * Returns the number of sky layers generated for a pack of the specified size.
+     *
+     * @param size The size of the pack, in entities.
+     * @return The number of sky layers.
+     */
+    public static int getSkyLayers(int size)
+    {
+        return Math.max(1, size / 16);
+    }
+
+    /**
+     * Generates a resource pack as a ZIP file.
+     *
+     * @param file The ZIP file to write.
+     * @param size The size of the pack, in entities.
+     * @throws IOException If the pack could not be written.
+     */
+    public static void generate(@NotNull File file, int size) throws IOException
+    {
+        Random random = new Random(SEED);
+        try (ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            put(out, "pack.mcmeta", "{\"pack\":{\"pack_format\":6,\"description\":\"Generated benchmark pack\"}}"
+                    .getBytes(StandardCharsets.UTF_8));
+
+            for (int i = 0; i < size; i++) {
+                String parent = "assets/minecraft/optifine/random/entity/entity" + i + "/";
+                if (i % 2 == 0) {
+                    put(out, parent + "mob.properties", ("textures.1=1-3\nweights.1=1 2 3\n"
+                            + "textures.2=2\nbiomes.2=plains desert\nheights.2=0-64\n").getBytes(StandardCharsets.UTF_8));
+                }
+                for (int n = 2; n <= 3; n++) {
+                    put(out, parent + "mob" + n + ".png", png(random, ENTITY_TEXTURE_SIZE, ENTITY_TEXTURE_SIZE));
+                }
+            }
+
+            int layers = getSkyLayers(size);
+            for (int i = 0; i < layers; i++) {
+                String parent = "assets/minecraft/optifine/sky/world0/sky" + i;
+                put(out, parent + ".properties", ("startFadeIn=18:00\nendFadeIn=19:00\nendFadeOut=6:00\n"
+                        + "blend=add\nrotate=true\nspeed=1.0\naxis=0.0 0.0 1.0\nweather=clear\n").getBytes(StandardCharsets.UTF_8));
+                put(out, parent + ".png", png(random, SKY_FACE_SIZE * 3, SKY_FACE_SIZE * 2));
+            }
+        }
+    }
+
+    /**
+     * Extracts a ZIP file into a directory.
+     *
+     * @param file The ZIP file.
+     * @param directory The target directory.
+     * @throws IOException If the pack could not be extracted.
+     */
+    public static void extract(@NotNull File file, @NotNull File directory) throws IOException
+    {
+        try (ZipFile zip = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                File target = new File(directory, entry.getName());
+                if (entry.isDirectory()) {
+                    target.mkdirs();
+                    continue;
+                }
+                target.getParentFile().mkdirs();
+                try (InputStream in = zip.getInputStream(entry)) {
+                    Files.copy(in, target.toPath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes a file or a directory recursively.
+     *
+     * @param file The file to delete.
+     */
+    public static void delete(@NotNull File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Generates a noisy image, which compresses like a real texture rather than like a solid color.
+     *
+     * @param random The random source.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @return The image.
+     */
+    public static @NotNull BufferedImage image(@NotNull Random random, int width, int height)
+    {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int base = random.nextInt() | 0xff000000;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, base ^ (random.nextInt(0x20) * 0x010101));
+            }
+        }
+        return image;
+    }
+
+    private static byte[] png(@NotNull Random random, int width, int height) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image(random, width, height), "png", out);
+        return out.toByteArray();
+    }
+
+    private static void put(@NotNull ZipOutputStream out, @NotNull String path, byte[] data) throws IOException
+    {
+        out.putNextEntry(new ZipEntry(path));
+        out.write(data);
+        out.closeEntry();
+    }
+}
@@ -19,6 +19,7 @@ package me.lambdaurora.mcpatcherpatcher.fabric;
 
 import me.lambdaurora.mcpatcherpatcher.MCPatcherPatcher;
 import me.lambdaurora.mcpatcherpatcher.fabric.image.NativeImageProvider;
+import me.lambdaurora.mcpatcherpatcher.fabric.resource.ConversionCache;
 import me.lambdaurora.mcpatcherpatcher.fabric.resource.MCPPResourcePack;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.loader.api.FabricLoader;
@@ -41,10 +42,12 @@ public class MCPatcherPatcherFabric implements ClientModInitializer {
     public static final String NAMESPACE = "mcpatcherpatcher";
     public static final net.minecraft.util.Identifier DUMMY_ID = new net.minecraft.util.Identifier(NAMESPACE, "dummy");
     public static final Path DEBUG_PATH = FileSystems.getDefault().getPath("debug", NAMESPACE);
+    public static final Path CACHE_PATH = FabricLoader.getInstance().getGameDir().resolve(NAMESPACE).resolve("cache");
     private static final String DEBUG_PROPERTY = System.getProperty("mcpatcherpatcher-debug");
     private static MCPatcherPatcherFabric INSTANCE;
     public final Logger logger = LogManager.getLogger(NAMESPACE);
     public final MCPatcherPatcher main = new MCPatcherPatcher(new NativeImageProvider());
+    public final ConversionCache cache = new ConversionCache(CACHE_PATH);
     public MCPPResourcePack resourcePack;
     private boolean debug = FabricLoader.getInstance().isDevelopmentEnvironment() || (DEBUG_PROPERTY != null && DEBUG_PROPERTY.equals("true"));
 
@@ -17,14 +17,26 @@
 
 package me.lambdaurora.mcpatcherpatcher.fabric.image;
 
+import me.lambdaurora.mcpatcherpatcher.fabric.mixin.NativeImageAccessor;
 import me.lambdaurora.mcpatcherpatcher.image.BasicImage;
+import me.lambdaurora.mcpatcherpatcher.image.ImageBufferPool;
 import net.minecraft.client.texture.NativeImage;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.stb.STBIWriteCallback;
+import org.lwjgl.stb.STBImageWrite;
+import org.lwjgl.system.MemoryUtil;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 
 /**
  * Represents a basic image using NativeImage as implementation.
+ * <p>
+ * Bulk pixel operations work directly on the native memory of the image, and sub-images are views of it.
+ * Pooled images are released to their pool when closed instead of being freed.
  *
  * @author LambdAurora
  * @version 1.0.0
@@ -32,11 +44,32 @@ import java.io.IOException;
  */
 public class BasicNativeImage implements BasicImage
 {
+    /**
+     * The format of the pooled native images.
+     */
+    public static final ImageBufferPool.Format<NativeImage> FORMAT = new ImageBufferPool.Format<>("native_abgr", 4,
+            (width, height) -> new NativeImage(NativeImage.Format.ABGR, width, height, false), NativeImage::close);
+
     private final NativeImage image;
+    private final ImageBufferPool pool;
+    private boolean closed = false;
 
     public BasicNativeImage(@NotNull NativeImage image)
+    {
+        this(image, null);
+    }
+
+    /**
+     * Creates a new basic image.
+     *
+     * @param image The image.
+     * @param pool The pool the image is released to when closed and the padded sub-images are drawn from,
+     * or null if the image is not pooled.
+     */
+    public BasicNativeImage(@NotNull NativeImage image, @Nullable ImageBufferPool pool)
     {
         this.image = image;
+        this.pool = pool;
     }
 
     @Override
@@ -63,6 +96,78 @@ public class BasicNativeImage implements BasicImage
         this.image.setPixelColor(x, y, color);
     }
 
+    @Override
+    public void getPixels(int x, int y, int width, int height, @NotNull int[] pixels, int offset, int scanSize)
+    {
+        IntBuffer buffer = this.getPixelBuffer(x, y, width, height);
+        for (int row = 0; row < height; row++) {
+            buffer.position((y + row) * this.getWidth() + x);
+            buffer.get(pixels, offset + row * scanSize, width);
+        }
+    }
+
+    @Override
+    public void setPixels(int x, int y, int width, int height, @NotNull int[] pixels, int offset, int scanSize)
+    {
+        IntBuffer buffer = this.getPixelBuffer(x, y, width, height);
+        for (int row = 0; row < height; row++) {
+            buffer.position((y + row) * this.getWidth() + x);
+            buffer.put(pixels, offset + row * scanSize, width);
+        }
+    }
+
+    @Override
+    public void copyRect(int x, int y, @NotNull BasicImage destination, int destinationX, int destinationY, int width, int height)
+    {
+        if (!(destination instanceof BasicNativeImage)) {
+            BasicImage.super.copyRect(x, y, destination, destinationX, destinationY, width, height);
+            return;
+        }
+
+        BasicNativeImage target = (BasicNativeImage) destination;
+        long source = this.getPointer(x, y, width, height);
+        long destinationPointer = target.getPointer(destinationX, destinationY, width, height);
+        for (int row = 0; row < height; row++) {
+            MemoryUtil.memCopy(source + ((long) (y + row) * this.getWidth() + x) * 4L,
+                    destinationPointer + ((long) (destinationY + row) * target.getWidth() + destinationX) * 4L,
+                    width * 4L);
+        }
+    }
+
+    /**
+     * Returns the address of the pixels of the image after checking that the rectangle is inside the image.
+     * <p>
+     * Native memory is not bounds-checked, an invalid rectangle must never reach it.
+     *
+     * @param x The X-coordinate of the rectangle.
+     * @param y The Y-coordinate of the rectangle.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @return The address of the first pixel of the image.
+     */
+    private long getPointer(int x, int y, int width, int height)
+    {
+        if (this.image.getFormat() != NativeImage.Format.ABGR)
+            throw new IllegalArgumentException("Bulk pixel operations are only supported on ABGR images.");
+        if (x < 0 || y < 0 || width < 0 || height < 0 || x + width > this.getWidth() || y + height > this.getHeight())
+            throw new IndexOutOfBoundsException(String.format("Rectangle (%d, %d, %d, %d) is outside of a %dx%d image.",
+                    x, y, width, height, this.getWidth(), this.getHeight()));
+        return this.getAddress();
+    }
+
+    private long getAddress()
+    {
+        long pointer = ((NativeImageAccessor) (Object) this.image).getPointer();
+        if (pointer == 0L)
+            throw new IllegalStateException("Image is not allocated.");
+        return pointer;
+    }
+
+    private @NotNull IntBuffer getPixelBuffer(int x, int y, int width, int height)
+    {
+        return MemoryUtil.memIntBuffer(this.getPointer(x, y, width, height), this.getWidth() * this.getHeight());
+    }
+
     @Override
     public byte[] getBytes()
     {
@@ -73,23 +178,82 @@ public class BasicNativeImage implements BasicImage
         }
     }
 
+    /**
+     * Encodes a rectangle of this image as PNG, straight from the memory of the image.
+     *
+     * @param x The X-coordinate of the rectangle.
+     * @param y The Y-coordinate of the rectangle.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @return The PNG bytes, or null if the encoding failed.
+     */
+    byte[] encode(int x, int y, int width, int height)
+    {
+        int channels = this.image.getFormat().getChannelCount();
+        int stride = this.getWidth() * channels;
+        long address = this.getAddress() + (long) y * stride + (long) x * channels;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        STBIWriteCallback callback = STBIWriteCallback.create((context, data, size) -> {
+            ByteBuffer buffer = STBIWriteCallback.getData(data, size);
+            byte[] bytes = new byte[size];
+            buffer.get(bytes);
+            out.write(bytes, 0, size);
+        });
+        try {
+            if (STBImageWrite.nstbi_write_png_to_func(callback.address(), 0L, width, height, channels, address, stride) == 0)
+                return null;
+            return out.toByteArray();
+        } finally {
+            callback.free();
+        }
+    }
+
+    /**
+     * Returns a sub-image from this image.
+     * <p>
+     * A rectangle inside this image is returned as a view which shares the memory of this image,
+     * a rectangle going past the edges is copied into a new image padded with transparent pixels.
+     *
+     * @param x The X-coordinate of the start of the sub-image.
+     * @param y The Y-coordinate of the start of the sub-image.
+     * @param width The width of the sub-image.
+     * @param height The height of the sub-image.
+     * @return The sub-image.
+     */
     @Override
     public @NotNull BasicImage getSubImage(int x, int y, int width, int height)
     {
-        BasicNativeImage subImage = new BasicNativeImage(new NativeImage(width, height, false));
+        if (x >= 0 && y >= 0 && width > 0 && height > 0 && x + width <= this.getWidth() && y + height <= this.getHeight())
+            return new NativeSubImage(this, x, y, width, height);
 
-        for (int iY = 0; iY < height && (y + iY) < this.getHeight(); iY++) {
-            for (int iX = 0; iX < width && (x + iX) < this.getWidth(); iX++) {
-                subImage.setPixelColor(iX, iY, this.getPixelColor(x + iX, y + iY));
-            }
+        BasicNativeImage subImage;
+        if (this.pool == null) {
+            subImage = new BasicNativeImage(new NativeImage(width, height, false));
+        } else {
+            subImage = new BasicNativeImage(this.pool.acquire(FORMAT, width, height), this.pool);
         }
+        // Neither new nor pooled images are cleared.
+        MemoryUtil.memSet(subImage.getAddress(), 0, (long) width * height * 4L);
+
+        // Only the part of the rectangle inside this image is copied.
+        int copyWidth = Math.min(width, this.getWidth() - x);
+        int copyHeight = Math.min(height, this.getHeight() - y);
+        if (copyWidth > 0 && copyHeight > 0)
+            this.copyRect(x, y, subImage, 0, 0, copyWidth, copyHeight);
 
         return subImage;
     }
 
     @Override
-    public void close()
+    public synchronized void close()
     {
-        this.image.close();
+        if (this.closed)
+            return;
+        this.closed = true;
+        if (this.pool != null && this.image.getFormat() == NativeImage.Format.ABGR)
+            this.pool.release(FORMAT, this.getWidth(), this.getHeight(), this.image);
+        else
+            this.image.close();
     }
 }
@@ -18,6 +18,7 @@
 package me.lambdaurora.mcpatcherpatcher.fabric.image;
 
 import me.lambdaurora.mcpatcherpatcher.image.BasicImage;
+import me.lambdaurora.mcpatcherpatcher.image.ImageBufferPool;
 import me.lambdaurora.mcpatcherpatcher.image.ImageProvider;
 import net.minecraft.client.texture.NativeImage;
 import org.jetbrains.annotations.NotNull;
@@ -34,9 +35,33 @@ import java.io.InputStream;
  */
 public class NativeImageProvider implements ImageProvider
 {
+    private final ImageBufferPool pool;
+
+    public NativeImageProvider()
+    {
+        this(new ImageBufferPool());
+    }
+
+    /**
+     * Creates a new image provider.
+     * <p>
+     * Images are decoded by STB into new native memory, the pool keeps the closed images for the padded sub-images.
+     *
+     * @param pool The pool of the native images.
+     */
+    public NativeImageProvider(@NotNull ImageBufferPool pool)
+    {
+        this.pool = pool;
+    }
+
+    public @NotNull ImageBufferPool getPool()
+    {
+        return this.pool;
+    }
+
     @Override
     public @NotNull BasicImage readImage(@NotNull InputStream inputStream) throws IOException
     {
-        return new BasicNativeImage(NativeImage.read(inputStream));
+        return new BasicNativeImage(NativeImage.read(inputStream), this.pool);
     }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fabric.image;
+
+import me.lambdaurora.mcpatcherpatcher.image.BasicImage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents a view of a rectangle of a {@link BasicNativeImage}.
+ * <p>
+ * No pixel is copied: reads and writes go to the parent image, and {@link #getBytes()} encodes the rectangle
+ * straight from the memory of the parent. The view is only valid as long as the parent image is not closed.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class NativeSubImage implements BasicImage
+{
+    private final BasicNativeImage parent;
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    NativeSubImage(@NotNull BasicNativeImage parent, int x, int y, int width, int height)
+    {
+        if (x < 0 || y < 0 || width <= 0 || height <= 0 || x + width > parent.getWidth() || y + height > parent.getHeight())
+            throw new IndexOutOfBoundsException(String.format("Sub-image (%d, %d, %d, %d) is outside of a %dx%d image.",
+                    x, y, width, height, parent.getWidth(), parent.getHeight()));
+        this.parent = parent;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getPixelColor(int x, int y)
+    {
+        this.checkBounds(x, y, 1, 1);
+        return this.parent.getPixelColor(this.x + x, this.y + y);
+    }
+
+    @Override
+    public void setPixelColor(int x, int y, int color)
+    {
+        this.checkBounds(x, y, 1, 1);
+        this.parent.setPixelColor(this.x + x, this.y + y, color);
+    }
+
+    @Override
+    public void getPixels(int x, int y, int width, int height, @NotNull int[] pixels, int offset, int scanSize)
+    {
+        this.checkBounds(x, y, width, height);
+        this.parent.getPixels(this.x + x, this.y + y, width, height, pixels, offset, scanSize);
+    }
+
+    @Override
+    public void setPixels(int x, int y, int width, int height, @NotNull int[] pixels, int offset, int scanSize)
+    {
+        this.checkBounds(x, y, width, height);
+        this.parent.setPixels(this.x + x, this.y + y, width, height, pixels, offset, scanSize);
+    }
+
+    @Override
+    public void copyRect(int x, int y, @NotNull BasicImage destination, int destinationX, int destinationY, int width, int height)
+    {
+        this.checkBounds(x, y, width, height);
+        this.parent.copyRect(this.x + x, this.y + y, destination, destinationX, destinationY, width, height);
+    }
+
+    @Override
+    public byte[] getBytes()
+    {
+        return this.parent.encode(this.x, this.y, this.width, this.height);
+    }
+
+    @Override
+    public @NotNull BasicImage getSubImage(int x, int y, int width, int height)
+    {
+        this.checkBounds(x, y, width, height);
+        return new NativeSubImage(this.parent, this.x + x, this.y + y, width, height);
+    }
+
+    /**
+     * Does nothing, the memory belongs to the parent image.
+     */
+    @Override
+    public void close()
+    {
+    }
+
+    private void checkBounds(int x, int y, int width, int height)
+    {
+        if (x < 0 || y < 0 || width < 0 || height < 0 || x + width > this.width || y + height > this.height)
+            throw new IndexOutOfBoundsException(String.format("Rectangle (%d, %d, %d, %d) is outside of a %dx%d image.",
+                    x, y, width, height, this.width, this.height));
+    }
+}
@@ -17,6 +17,7 @@
 
 package me.lambdaurora.mcpatcherpatcher.fabric.mixin;
 
+import me.lambdaurora.mcpatcherpatcher.ConversionReport;
 import me.lambdaurora.mcpatcherpatcher.fabric.MCPatcherPatcherFabric;
 import me.lambdaurora.mcpatcherpatcher.fabric.fs.ResourceManagerAccessor;
 import me.lambdaurora.mcpatcherpatcher.fabric.resource.MCPPResourcePack;
@@ -59,7 +60,18 @@ public abstract class ReloadableResourceManagerImplMixin implements ReloadableRe
             return;
 
         MCPatcherPatcherFabric mod = MCPatcherPatcherFabric.get();
-        mod.main.convert(new ResourceManagerAccessor(this), mod.resourcePack = new MCPPResourcePack());
+        mod.resourcePack = new MCPPResourcePack();
+
+        String fingerprint = mod.cache.fingerprint(packs);
+        if (fingerprint != null && mod.cache.load(fingerprint, mod.resourcePack)) {
+            mod.log("Loaded generated resources from cache.");
+        } else {
+            ConversionReport report = mod.main.convert(new ResourceManagerAccessor(this), mod.resourcePack);
+            mod.log(report.toString());
+            // Partial resources are used for this reload only, the next reload converts again.
+            if (fingerprint != null && report.isComplete())
+                mod.cache.store(fingerprint, mod.resourcePack);
+        }
 
         mod.log("Inject generated resource packs.");
         this.addPack(mod.resourcePack);
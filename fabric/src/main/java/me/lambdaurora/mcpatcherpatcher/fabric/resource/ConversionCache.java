@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2020 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.lambdaurora.mcpatcherpatcher.fabric.resource;
+
+import me.lambdaurora.mcpatcherpatcher.MCPatcherPatcher;
+import me.lambdaurora.mcpatcherpatcher.fabric.MCPatcherPatcherFabric;
+import me.lambdaurora.mcpatcherpatcher.fabric.mixin.AbstractFileResourcePackAccessor;
+import me.lambdaurora.mcpatcherpatcher.fs.ResourceAccessor;
+import net.fabricmc.fabric.api.resource.ModResourcePack;
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.metadata.ModMetadata;
+import net.minecraft.SharedConstants;
+import net.minecraft.resource.AbstractFileResourcePack;
+import net.minecraft.resource.DefaultResourcePack;
+import net.minecraft.resource.ResourcePack;
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Represents the on-disk cache of the generated resources.
+ * <p>
+ * The generated resources are stored in a ZIP file named after the fingerprint of the resource pack stack they were
+ * generated from. Any change in the stack (pack order, pack file, mod or game version) changes the fingerprint,
+ * so stale entries are never loaded and are pruned over time.
+ * <p>
+ * Packs backed by files are fingerprinted by the size and modification time of their files, mod resource packs by the version of their mod.
+ * Other packs are fingerprinted by the content of their OptiFine and MCPatcher resources,
+ * a stack containing a pack which cannot be read is not cached.
+ *
+ * @author LambdAurora
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ConversionCache
+{
+    private static final int MAX_ENTRIES = 4;
+    /**
+     * The resource directories read by the converters.
+     */
+    private static final String[] CONTENT_PREFIXES = {"optifine", "mcpatcher"};
+
+    private final Path directory;
+
+    public ConversionCache(@NotNull Path directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Computes the fingerprint of the specified resource pack stack.
+     *
+     * @param packs The resource packs, in load order.
+     * @return The fingerprint, or null if the content of a resource pack could not be fingerprinted.
+     */
+    public @Nullable String fingerprint(@NotNull List<ResourcePack> packs)
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        update(digest, MCPatcherPatcher.CONVERTERS_VERSION);
+        update(digest, SharedConstants.getGameVersion().getId());
+        update(digest, FabricLoader.getInstance().getModContainer(MCPatcherPatcherFabric.NAMESPACE)
+                .map(mod -> mod.getMetadata().getVersion().getFriendlyString()).orElse(""));
+
+        for (ResourcePack pack : packs) {
+            if (pack instanceof MCPPResourcePack)
+                continue;
+            update(digest, pack.getClass().getName());
+            update(digest, pack.getName());
+            if (pack instanceof AbstractFileResourcePack) {
+                File base = ((AbstractFileResourcePackAccessor) pack).getBase();
+                update(digest, base.getAbsolutePath());
+                try {
+                    this.updateFile(digest, base.toPath());
+                } catch (IOException e) {
+                    // Unreadable pack, make sure the stack is considered as changed.
+                    update(digest, String.valueOf(System.nanoTime()));
+                }
+            } else if (pack instanceof ModResourcePack) {
+                ModMetadata metadata = ((ModResourcePack) pack).getFabricModMetadata();
+                update(digest, metadata.getId());
+                update(digest, metadata.getVersion().getFriendlyString());
+            } else if (!(pack instanceof DefaultResourcePack)) {
+                // The vanilla pack only depends on the game version, any other pack is hashed by content.
+                try {
+                    updateContent(digest, pack);
+                } catch (IOException | RuntimeException e) {
+                    return null;
+                }
+            }
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    private void updateFile(@NotNull MessageDigest digest, @NotNull Path base) throws IOException
+    {
+        Files.walkFileTree(base, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+            {
+                update(digest, base.relativize(file).toString());
+                update(digest, attributes.size() + ":" + attributes.lastModifiedTime().toMillis());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Hashes the resources of a pack which may be read by the converters.
+     *
+     * @param digest The digest.
+     * @param pack The resource pack.
+     * @throws IOException If a resource could not be read.
+     */
+    private static void updateContent(@NotNull MessageDigest digest, @NotNull ResourcePack pack) throws IOException
+    {
+        byte[] buffer = new byte[8192];
+        for (String namespace : new TreeSet<>(pack.getNamespaces(ResourceType.CLIENT_RESOURCES))) {
+            for (String prefix : CONTENT_PREFIXES) {
+                List<Identifier> resources = new ArrayList<>(pack.findResources(ResourceType.CLIENT_RESOURCES, namespace, prefix, Integer.MAX_VALUE, path -> true));
+                resources.sort(Comparator.comparing(Identifier::toString));
+                for (Identifier resource : resources) {
+                    update(digest, resource.toString());
+                    try (InputStream in = pack.open(ResourceType.CLIENT_RESOURCES, resource)) {
+                        int read;
+                        while ((read = in.read(buffer)) >= 0)
+                            digest.update(buffer, 0, read);
+                    }
+                    digest.update((byte) 0);
+                }
+            }
+        }
+    }
+
+    private static void update(@NotNull MessageDigest digest, @NotNull String value)
+    {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Loads the cached resources of the specified fingerprint into the resource accessor.
+     *
+     * @param fingerprint The fingerprint of the resource pack stack.
+     * @param accessor The resource accessor to fill.
+     * @return True if the cache had an entry for the fingerprint and it has been loaded, else false.
+     */
+    public boolean load(@NotNull String fingerprint, @NotNull ResourceAccessor accessor)
+    {
+        Path file = this.getFile(fingerprint);
+        if (!Files.isRegularFile(file))
+            return false;
+
+        try (ZipInputStream in = new ZipInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, (int) entry.getSize()));
+                ResourceAccessor.transferTo(in, out);
+                accessor.put(entry.getName(), out.toByteArray());
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (IOException e) {
+            MCPatcherPatcherFabric.get().log("Could not load cached resources " + fingerprint + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Stores the generated resources under the specified fingerprint.
+     *
+     * @param fingerprint The fingerprint of the resource pack stack.
+     * @param resourcePack The generated resource pack.
+     */
+    public void store(@NotNull String fingerprint, @NotNull MCPPResourcePack resourcePack)
+    {
+        Path file = this.getFile(fingerprint);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(this.directory);
+            try (ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                for (Map.Entry<String, byte[]> resource : resourcePack.getResources().entrySet()) {
+                    out.putNextEntry(new ZipEntry(resource.getKey()));
+                    out.write(resource.getValue());
+                    out.closeEntry();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            MCPatcherPatcherFabric.get().log("Could not cache generated resources: " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+            return;
+        }
+
+        this.prune();
+    }
+
+    /**
+     * Removes the least recently used entries past the maximum amount of cached stacks.
+     */
+    private void prune()
+    {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            List<Path> entries = files.filter(path -> path.getFileName().toString().endsWith(".zip"))
+                    .sorted(Comparator.comparing(ConversionCache::getLastModified).reversed())
+                    .collect(Collectors.toList());
+            for (Path entry : entries.subList(Math.min(MAX_ENTRIES, entries.size()), entries.size())) {
+                Files.deleteIfExists(entry);
+            }
+        } catch (IOException e) {
+            MCPatcherPatcherFabric.get().log("Could not prune the resource cache: " + e.getMessage());
+        }
+    }
+
+    private @NotNull Path getFile(@NotNull String fingerprint)
+    {
+        return this.directory.resolve(fingerprint + ".zip");
+    }
+
+    private static @NotNull FileTime getLastModified(@NotNull Path path)
+    {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+}
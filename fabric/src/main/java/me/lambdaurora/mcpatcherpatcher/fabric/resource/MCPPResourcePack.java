@@ -90,6 +90,40 @@ public class MCPPResourcePack implements ResourcePack, ResourceAccessor {
         this.put(resource, text.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Transfers a generated resource to the specified accessor, the generated resources are already in memory so their data is put as is.
+     *
+     * @param outAccessor The output resource accessor.
+     * @param from The path of the resource in this resource pack.
+     * @param to The path of the resource in the output accessor.
+     * @return True if the resource has been transferred, else false.
+     */
+    @Override
+    public boolean transfer(@NotNull ResourceAccessor outAccessor, @NotNull String from, @NotNull String to) {
+        byte[] data = this.resources.get(from);
+        if (data == null)
+            return ResourceAccessor.super.transfer(outAccessor, from, to);
+        return outAccessor.put(to, data);
+    }
+
+    @Override
+    public boolean transfer(@NotNull ResourceAccessor outAccessor, @NotNull me.lambdaurora.mcpatcherpatcher.ResourceType type,
+                            @NotNull org.aperlambda.lambdacommon.Identifier from, @NotNull org.aperlambda.lambdacommon.Identifier to) {
+        byte[] data = this.resources.get(ResourceAccessor.asPath(type, from));
+        if (data == null)
+            return ResourceAccessor.super.transfer(outAccessor, type, from, to);
+        return outAccessor.put(type, to, data);
+    }
+
+    /**
+     * Returns the generated resources, mapped by path.
+     *
+     * @return An unmodifiable view of the resources.
+     */
+    public @NotNull Map<String, byte[]> getResources() {
+        return Collections.unmodifiableMap(this.resources);
+    }
+
     @Override
     public InputStream openRoot(String fileName) throws IOException {
         InputStream defaultStream = this.openDefault(fileName);